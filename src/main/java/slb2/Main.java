@@ -5,6 +5,11 @@ import slb2.reader.DataType;
 
 public class Main {
 
+    private static final String DETECTOR_OPTION = "detector=";
+    private static final String HALF_LIFE_OPTION = "halfLife=";
+    private static final String LOAD_HALF_LIFE_OPTION = "loadHalfLife=";
+    private static final String CARDINALITY_OPTION = "cardinality=";
+    private static final String PRECISION_OPTION = "precision=";
 
     public static void main(String[] args) throws Exception {
         if (args.length < 4) {
@@ -27,7 +32,7 @@ public class Main {
             threshold = Integer.parseInt(args[5]);
         }
 
-        if (simulatorType == 7) {
+        if (simulatorType == 7 || simulatorType == 8) {
             delta = Float.parseFloat(args[5]);
         }
 
@@ -35,7 +40,6 @@ public class Main {
             epsilon = Float.parseFloat(args[6]);
         }
 
-        AbstractPartitioner partitioner = null;
         DataType dataType = null;
 
         if (inFilePathName.endsWith(".gz")) {           // wiki data
@@ -48,36 +52,58 @@ public class Main {
             }
         }
 
-        String outputFileName = null;
-
-        if (simulatorType == 1) {
-            partitioner = new HashPartitioner(numServers);
-            outputFileName = "hash";
-        } else if (simulatorType == 2) {
-            partitioner = new PKG_Partitioner(numServers);
-            outputFileName = "pkg";
-        } else if (simulatorType == 3) {
-            partitioner = new DChoices_Partitioner(numServers, threshold);
-            outputFileName = "d-choices";
-        } else if (simulatorType == 4) {
-            partitioner = new WChoices_Partitioner(numServers, threshold);
-            outputFileName = "w-choices";
-        } else if (simulatorType == 5) {
-            partitioner = new RR_Partitioner(numServers, threshold);
-            outputFileName = "RR";
-        } else if (simulatorType == 6) {
-            partitioner = new SG_Partitioner(numServers);
-            outputFileName = "shuffle";
-        } else if (simulatorType == 7) {
-//            partitioner = new HolisticPartitioner(numServers, delta);
-            partitioner = new HolisticPartitionerForString(numServers);
-            outputFileName = "holistic";
+        boolean parallel = false;   // one thread per upstream operator
+        String detector = null;     // default head detector of the partitioner
+        long halfLife = HeadDetectorFactory.DEFAULT_HALF_LIFE;
+        long loadHalfLife = 0;      // cumulative local loads
+        String cardinality = null;  // HyperLogLog++ at p = 24 in the downstream operators
+        int precision = 0;          // default precision of the counter
+        for (int i = 5; i < args.length; i++) {
+            if (args[i].equalsIgnoreCase("parallel")) {
+                parallel = true;
+            } else if (args[i].startsWith(DETECTOR_OPTION)) {
+                detector = args[i].substring(DETECTOR_OPTION.length());
+            } else if (args[i].startsWith(HALF_LIFE_OPTION)) {
+                halfLife = Long.parseLong(args[i].substring(HALF_LIFE_OPTION.length()));
+            } else if (args[i].startsWith(LOAD_HALF_LIFE_OPTION)) {
+                loadHalfLife = Long.parseLong(args[i].substring(LOAD_HALF_LIFE_OPTION.length()));
+            } else if (args[i].startsWith(CARDINALITY_OPTION)) {
+                cardinality = args[i].substring(CARDINALITY_OPTION.length());
+            } else if (args[i].startsWith(PRECISION_OPTION)) {
+                precision = Integer.parseInt(args[i].substring(PRECISION_OPTION.length()));
+            }
+        }
+
+        PartitionerFactory factory;
+        try {
+            factory = new PartitionerFactory(simulatorType, numServers, threshold, delta,
+                    detector == null ? null : new HeadDetectorFactory(detector, halfLife), loadHalfLife);
+        } catch (IllegalArgumentException e) {   // unknown detector, or one which cannot bound its error for delta
+            System.err.println(e.getMessage());
+            System.exit(1);
+            return;
         }
+        String outputFileName = factory.getOutputFileName();
+        CardinalityFactory cardinalityFactory;
+        if (cardinality == null && precision == 0) {
+            cardinalityFactory = new CardinalityFactory();
+        } else {
+            cardinality = cardinality == null ? CardinalityFactory.HLL_PLUS : cardinality;
+            cardinalityFactory = precision == 0
+                    ? new CardinalityFactory(cardinality) : new CardinalityFactory(cardinality, precision);
+            outputFileName += "_" + cardinalityFactory.getDescription();
+        }
+
 
         String outFilePathName = outFilePath + "\\" + "twitter_" + numServers + "_" + outputFileName + ".csv";
 
-        Simulator simulator = new Simulator(numSources, numServers, inFilePathName, outFilePathName, partitioner, dataType);
-        simulator.start();
+        if (parallel) {
+            ParallelSimulator simulator = new ParallelSimulator(numSources, numServers, inFilePathName, outFilePathName, factory, dataType, cardinalityFactory);
+            simulator.start();
+        } else {
+            Simulator simulator = new Simulator(numSources, numServers, inFilePathName, outFilePathName, factory, dataType, cardinalityFactory);
+            simulator.start();
+        }
 
     }
 
@@ -97,7 +123,21 @@ public class Main {
         System.err
                 .println("6. Shuffle: <SimulatorType inFileName numServer>");
         System.err
-                .println("7. Holistic: <SimulatorType inFileName numServer>");
+                .println("7. Holistic: <SimulatorType inFileName numServer delta>");
+        System.err
+                .println("8. Holistic for integer keys: <SimulatorType inFileName numServer delta>");
+        System.err
+                .println("Append \"parallel\" to run every upstream operator on its own thread.");
+        System.err
+                .println("Append \"detector=<name>\" to find the head of 3, 4, 5 and 7 with another detector, one of "
+                        + String.join(", ", HeadDetectorFactory.getNames()) + ".");
+        System.err
+                .println("Append \"halfLife=<tuples>\" to set the half-life of the decaying detector.");
+        System.err
+                .println("Append \"loadHalfLife=<tuples>\" to let the local loads of the servers decay with this half-life.");
+        System.err
+                .println("Append \"cardinality=<name>\" to count the distinct keys of the servers with another counter, one of "
+                        + String.join(", ", CardinalityFactory.getNames()) + ", and \"precision=<p>\" to set its precision.");
 
         System.exit(1);
     }
@@ -0,0 +1,375 @@
+package slb2;
+
+import com.csvreader.CsvReader;
+import com.csvreader.CsvWriter;
+import slb2.partitioners.AbstractPartitioner;
+import slb2.partitioners.CardinalityFactory;
+import slb2.partitioners.HashedKey;
+import slb2.partitioners.Operator;
+import slb2.partitioners.PartitionerFactory;
+import slb2.reader.CsvItemReader;
+import slb2.reader.DataType;
+import slb2.reader.ItemReader;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Multi-thread simulator: every upstream operator runs on its own thread with its own partitioner.
+ * <p>
+ * The calling thread reads the input and deals the keys round-robin to the upstream operators in batches,
+ * so every upstream operator gets the same input split as in the single thread {@link Simulator}.
+ * Downstream operators are shared by all upstream operators.
+ * <p>
+ * Every PRINT_INTERVAL keys, the reading thread sends a checkpoint to all upstream operators and waits until they
+ * have processed the keys dealt so far, then prints and writes the same partial results as the single thread
+ * simulator while they wait. The reading thread also counts the distinct keys of the stream, for the replication
+ * factor, so that the upstream operators pay nothing for it.
+ * <p>
+ * If an upstream operator fails, it breaks the checkpoint and interrupts the reading thread, which stops the other
+ * upstream operators and throws the failure. If the reading thread fails, it stops the upstream operators too.
+ */
+public class ParallelSimulator {
+
+    private final double PRINT_INTERVAL = 1e6;
+    private static final int BATCH_SIZE = 4096;      // keys handed to an upstream operator at once
+    private static final int QUEUE_CAPACITY = 16;    // batches buffered per upstream operator
+    private static final String[] END_OF_STREAM = new String[0];
+    private static final String[] CHECKPOINT = new String[0];
+
+    private int numServers;
+    private int numSources;
+    private String inFilePathName;
+    private DataType dataType;
+
+    private AbstractPartitioner[] partitioners;  // one per upstream operator
+    private Operator[] upstreamOperators;
+    private Operator[] downstreamOperators;
+    private Operator stream;              // receives every key from the reading thread, counts the distinct keys
+    private HashedKey streamKey;          // key dealt by the reading thread and its hash
+    private CardinalityFactory cardinalityFactory;
+    private String outFilePathName;
+    private CsvWriter writer;
+
+    private List<BlockingQueue<String[]>> queues;
+    private CyclicBarrier checkpoint;     // the reading thread and the upstream operators meet at checkpoints
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();   // first failure of a worker
+    private String[][] batches;
+    private int[] batchSizes;
+
+    public ParallelSimulator(int numSources, int numServers, String inFilePathName,
+                             String outFilePathName, PartitionerFactory factory, DataType dataType) {
+        this(numSources, numServers, inFilePathName, outFilePathName, factory, dataType, new CardinalityFactory());
+    }
+
+    /**
+     * @param cardinalityFactory distinct key counter of every downstream operator
+     */
+    public ParallelSimulator(int numSources, int numServers, String inFilePathName, String outFilePathName,
+                             PartitionerFactory factory, DataType dataType, CardinalityFactory cardinalityFactory) {
+        this.numSources = numSources;
+        this.numServers = numServers;
+        this.inFilePathName = inFilePathName;
+        this.outFilePathName = outFilePathName;
+        this.dataType = dataType;
+
+        this.cardinalityFactory = cardinalityFactory;
+        downstreamOperators = new Operator[numServers]; // Operators for downstream
+        for (int i = 0; i < numServers; i++) {
+            downstreamOperators[i] = new Operator(cardinalityFactory.create());
+        }
+        stream = new Operator(cardinalityFactory.create());
+        streamKey = new HashedKey();
+
+        partitioners = new AbstractPartitioner[numSources];
+        upstreamOperators = new Operator[numSources]; // Operators for upstream
+        queues = new ArrayList<>(numSources);
+        checkpoint = new CyclicBarrier(numSources + 1);
+        batches = new String[numSources][];
+        batchSizes = new int[numSources];
+        for (int i = 0; i < numSources; i++) {
+            partitioners[i] = factory.create();
+            upstreamOperators[i] = new Operator(partitioners[i], downstreamOperators);
+            queues.add(new ArrayBlockingQueue<String[]>(QUEUE_CAPACITY));
+            batches[i] = new String[BATCH_SIZE];
+        }
+    }
+
+    public void start() throws Exception {
+        System.out.println("Starting to read the item stream...");
+        System.out.println(partitioners[0].getName() + " Partitioner output (" + numSources + " threads):");
+
+        ItemReader reader;
+        if (dataType == DataType.WIKI) {
+            reader = new StreamItemReader(getInput(inFilePathName));
+        } else {
+            reader = new CsvItemReader(new CsvReader(inFilePathName), dataType);
+        }
+
+        writer = new CsvWriter(new FileWriter(outFilePathName), ',');
+        writer.writeComment("M tuples, load imbalance, replication factor, cardinality imbalance, simulation time");
+        writer.writeRecord(new String[]{"x", "y", "z", "c", "t"});
+
+        Thread[] workers = new Thread[numSources];
+        for (int i = 0; i < numSources; i++) {
+            workers[i] = new Thread(new Worker(upstreamOperators[i], queues.get(i), checkpoint, failure,
+                    Thread.currentThread()), "upstream-" + i);
+            workers[i].start();
+        }
+
+        try {
+            long simulationStartTime = System.currentTimeMillis();
+            long itemCount;
+            try {
+                itemCount = dispatch(reader);
+                for (int i = 0; i < numSources; i++) {
+                    workers[i].join();
+                }
+            } catch (Throwable e) {   // a worker interrupted the reading thread, or the reading thread failed
+                for (Thread worker : workers) {
+                    worker.interrupt();
+                }
+                checkWorkers();
+                throw e;
+            }
+            checkWorkers();
+            long simulationTime = System.currentTimeMillis() - simulationStartTime;
+
+            System.out.println();
+            System.out.println("Finished reading items\nTotal items: " + itemCount);
+            System.out.println("Simulation time: " + simulationTime + " ms");
+
+            if (itemCount % PRINT_INTERVAL != 0) {   // else the last checkpoint holds the totals
+                System.out.println();
+                outputPartialResult(itemCount, String.valueOf(itemCount / PRINT_INTERVAL), simulationTime);
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * @throws ExecutionException if an upstream operator failed, with its failure as the cause
+     */
+    private void checkWorkers() throws ExecutionException {
+        Throwable cause = failure.get();
+        if (cause != null) {
+            Thread.interrupted();   // the interrupt of the failed worker is handled
+            throw new ExecutionException("An upstream operator failed", cause);
+        }
+    }
+
+    private BufferedReader getInput(String inFileName) throws IOException {
+        InputStream rawin = new FileInputStream(inFileName);
+        rawin = new GZIPInputStream(rawin);
+        return new BufferedReader(new InputStreamReader(rawin));
+    }
+
+    /**
+     * Reads the whole input and deals the keys round-robin to the upstream operators.
+     * @param reader
+     * @return number of keys read
+     * @throws Exception
+     */
+    private long dispatch(ItemReader reader) throws Exception {
+        long simulationStartTime = System.currentTimeMillis();
+        long itemCount = 0;
+        int sourceIndex = 0;
+
+        String[] item = reader.nextItem();
+        while (item != null) {
+            int from = 0;
+            int to = item.length;
+            if (dataType == DataType.WIKI) {   // url of wikipedia data as key
+                from = 1;
+                to = 2;
+            }
+            for (int i = from; i < to; i++) {
+                deal(sourceIndex, item[i]);
+
+                if (++itemCount % PRINT_INTERVAL == 0) {
+                    awaitCheckpoint();
+                    int x = (int) (itemCount / PRINT_INTERVAL);
+                    long simulationDuration = System.currentTimeMillis() - simulationStartTime;
+                    System.out.println("Read " + x + "M keys.\tSimulation time: " + simulationDuration + " ms");
+                    outputPartialResult(itemCount, String.valueOf(x), simulationDuration);
+                    checkpoint.await();   // resume the upstream operators
+                }
+
+                sourceIndex++;
+                if (sourceIndex == numSources) {
+                    sourceIndex = 0;
+                }
+            }
+            item = reader.nextItem();
+        }
+
+        if (reader instanceof StreamItemReader) {
+            ((StreamItemReader) reader).close();
+        } else {
+            ((CsvItemReader) reader).close();
+        }
+
+        flush(END_OF_STREAM);
+        return itemCount;
+    }
+
+    private void deal(int sourceIndex, String key) throws InterruptedException {
+        stream.receiveElement(streamKey.set(key));
+        batches[sourceIndex][batchSizes[sourceIndex]++] = key;
+        if (batchSizes[sourceIndex] == BATCH_SIZE) {
+            queues.get(sourceIndex).put(batches[sourceIndex]);
+            batches[sourceIndex] = new String[BATCH_SIZE];
+            batchSizes[sourceIndex] = 0;
+        }
+    }
+
+    /**
+     * Hands the keys dealt so far to the upstream operators, followed by the given marker.
+     * @param marker CHECKPOINT or END_OF_STREAM
+     * @throws InterruptedException
+     */
+    private void flush(String[] marker) throws InterruptedException {
+        for (int i = 0; i < numSources; i++) {
+            if (batchSizes[i] > 0) {
+                queues.get(i).put(Arrays.copyOf(batches[i], batchSizes[i]));
+                batchSizes[i] = 0;
+            }
+            queues.get(i).put(marker);
+        }
+    }
+
+    /**
+     * Returns once the upstream operators processed all the keys dealt so far. They wait at the checkpoint
+     * until the next call of checkpoint.await().
+     * @throws InterruptedException
+     * @throws BrokenBarrierException
+     */
+    private void awaitCheckpoint() throws InterruptedException, BrokenBarrierException {
+        flush(CHECKPOINT);
+        checkpoint.await();
+    }
+
+    /**
+     * Same as the partial results of the single thread simulator, printed and written while the upstream operators
+     * wait, or once they are done.
+     * @param itemCount number of keys processed so far
+     * @param x M tuples, first column of the record
+     * @param simulationTime
+     */
+    private void outputPartialResult(long itemCount, String x, long simulationTime) {
+        double loadImbalance = getLoadImbalance(itemCount);
+        System.out.println("Load Imbalance: " + loadImbalance);
+
+        long[] cardinalities = getCardinalities();
+        double cardinalityImbalance = getCardinalityImbalance(cardinalities);
+        System.out.println("Cardinality imbalance: " + cardinalityImbalance);
+
+        long allCardinality = 0;
+        for (long cardinality : cardinalities) {
+            allCardinality += cardinality;
+        }
+        long totalCardinality = stream.getCardinality();
+        double replicationFactor = allCardinality / (double) totalCardinality;
+        System.out.println("Replication factor: " + allCardinality + " / " + totalCardinality + " = " + replicationFactor);
+        Operator.printMemoryFootprint(downstreamOperators, cardinalityFactory);
+        System.out.println();
+
+        try {
+            writer.writeRecord(new String[]{x, String.valueOf(loadImbalance), String.valueOf(replicationFactor),
+                    String.valueOf(cardinalityImbalance), String.valueOf(simulationTime)});
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private double getLoadImbalance(long itemCount) {
+        long maxLoad = 0;
+        for (int i = 0; i < numServers; i++) {
+            maxLoad = Math.max(maxLoad, downstreamOperators[i].getLoad());
+        }
+        double averageLoad = itemCount / (double) numServers;
+        return (maxLoad - averageLoad) / averageLoad;
+    }
+
+    private long[] getCardinalities() {
+        long[] cardinalities = new long[numServers];
+        for (int i = 0; i < numServers; i++) {
+            cardinalities[i] = downstreamOperators[i].getCardinality();
+        }
+        return cardinalities;
+    }
+
+    private double getCardinalityImbalance(long[] cardinalities) {
+        long maxCardinality = 0;
+        long allCardinality = 0;
+        for (long cardinality : cardinalities) {
+            allCardinality += cardinality;
+            maxCardinality = Math.max(maxCardinality, cardinality);
+        }
+        double averageCardinality = allCardinality / (double) numServers;
+        return (maxCardinality - averageCardinality) / averageCardinality;
+    }
+
+    /**
+     * Drives one upstream operator with the batches dealt to it.
+     */
+    private static class Worker implements Runnable {
+
+        private final Operator operator;
+        private final BlockingQueue<String[]> queue;
+        private final CyclicBarrier checkpoint;
+        private final AtomicReference<Throwable> failure;
+        private final Thread dispatcher;   // reading thread, interrupted when the operator fails
+
+        /**
+         * @param operator upstream operator
+         * @param queue batches dealt to the operator
+         * @param checkpoint shared with the reading thread and the other workers
+         * @param failure where the first failure of a worker is recorded
+         * @param dispatcher reading thread
+         */
+        Worker(Operator operator, BlockingQueue<String[]> queue, CyclicBarrier checkpoint,
+               AtomicReference<Throwable> failure, Thread dispatcher) {
+            this.operator = operator;
+            this.queue = queue;
+            this.checkpoint = checkpoint;
+            this.failure = failure;
+            this.dispatcher = dispatcher;
+        }
+
+        @Override
+        public void run() {
+            try {
+                String[] batch = queue.take();
+                while (batch != END_OF_STREAM) {
+                    if (batch == CHECKPOINT) {
+                        checkpoint.await();   // all keys dealt so far are processed
+                        checkpoint.await();   // the partial results are printed
+                    }
+                    for (int i = 0; i < batch.length; i++) {
+                        operator.processElement(batch[i]);
+                    }
+                    batch = queue.take();
+                }
+            } catch (InterruptedException e) {   // stopped by the reading thread
+                Thread.currentThread().interrupt();
+            } catch (BrokenBarrierException e) {   // another party failed
+            } catch (Throwable e) {
+                if (failure.compareAndSet(null, e)) {
+                    checkpoint.reset();       // the others waiting at the checkpoint stop
+                    dispatcher.interrupt();   // the reading thread stops, even if it waits for a full queue
+                }
+            }
+        }
+    }
+}
@@ -3,8 +3,12 @@ package slb2;
 import com.csvreader.CsvReader;
 import com.csvreader.CsvWriter;
 import slb2.partitioners.AbstractPartitioner;
+import slb2.partitioners.AbstractRoutingTable;
+import slb2.partitioners.CardinalityFactory;
+import slb2.partitioners.HolisticPartitioner;
 import slb2.partitioners.HolisticPartitionerForString;
 import slb2.partitioners.Operator;
+import slb2.partitioners.PartitionerFactory;
 import slb2.reader.CsvItemReader;
 import slb2.reader.DataType;
 
@@ -12,7 +16,8 @@ import java.io.*;
 import java.util.zip.GZIPInputStream;
 
 /**
- * Single thread simulator
+ * Single thread simulator. Every upstream operator owns its own partitioner, see {@link ParallelSimulator}
+ * for the multi-thread one.
  */
 public class Simulator {
 
@@ -20,31 +25,45 @@ public class Simulator {
     private int numServers;
     private int numSources;
     private String inFilePathName;
-    private AbstractPartitioner partitioner;
+    private AbstractPartitioner[] partitioners;  // one per upstream operator, each with its own local estimates
 
     private Operator[] upstreamOperators;
     private Operator[] downstreamOperators;
+    private Operator stream;                     // receives every tuple, counts the distinct keys of the stream
+    private CardinalityFactory cardinalityFactory;
     private String outFilePathName;
     private DataType dataType;
 
     private CsvWriter writer;
 
     public Simulator(int numSources, int numServers, String inFilePathName,
-                     String outFilePathName, AbstractPartitioner partitioner, DataType dataType) throws Exception {
+                     String outFilePathName, PartitionerFactory factory, DataType dataType) throws Exception {
+        this(numSources, numServers, inFilePathName, outFilePathName, factory, dataType, new CardinalityFactory());
+    }
+
+    /**
+     * @param cardinalityFactory distinct key counter of every downstream operator
+     */
+    public Simulator(int numSources, int numServers, String inFilePathName, String outFilePathName,
+                     PartitionerFactory factory, DataType dataType, CardinalityFactory cardinalityFactory)
+            throws Exception {
         this.numSources = numSources;
         this.numServers = numServers;
         this.inFilePathName = inFilePathName;
-        this.partitioner = partitioner;
         this.dataType = dataType;
 
+        this.cardinalityFactory = cardinalityFactory;
         downstreamOperators = new Operator[numServers]; // Operators for downstream
         for (int i = 0; i < numServers; i++) {
-            downstreamOperators[i] = new Operator();
+            downstreamOperators[i] = new Operator(cardinalityFactory.create());
         }
+        stream = new Operator(cardinalityFactory.create());
 
+        partitioners = new AbstractPartitioner[numSources];
         upstreamOperators = new Operator[numSources]; // Operators for upstream
         for (int i = 0; i < numSources; i++) {
-            upstreamOperators[i] = new Operator(partitioner, downstreamOperators);
+            partitioners[i] = factory.create();
+            upstreamOperators[i] = new Operator(partitioners[i], downstreamOperators);
         }
         this.outFilePathName = outFilePathName;
     }
@@ -59,7 +78,7 @@ public class Simulator {
         try {
             csvFile.createNewFile();
 
-            this.writer = new CsvWriter(new FileWriter(outFilePathName), 'c');
+            this.writer = new CsvWriter(new FileWriter(outFilePathName), ',');
             writer.writeComment("M tuples, load imbalance, replication factor, cardinality imbalance, simulation time");
             String[] columnName = new String[5];
             columnName[0] = "x";  // tuples/M
@@ -135,7 +154,7 @@ public class Simulator {
 
     public void start() throws Exception {
         System.out.println("Starting to read the item stream...");
-        System.out.println(partitioner.getName() + " Partitioner output:");
+        System.out.println(partitioners[0].getName() + " Partitioner output:");
 
         initializeCsvWriterByTuple(outFilePathName);
 //        initializeCsvWriterForZipfDifferentSkewness(outFilePathName);
@@ -152,6 +171,7 @@ public class Simulator {
                 simulationTime = startEmulate(new CsvItemReader(new CsvReader(inFilePathName), DataType.ZIPF));
             }
         }
+        writer.close();
 
 //        outputFinalResultByTuple(downstreamOperators, numServers);  // by tuples
 
@@ -190,12 +210,14 @@ public class Simulator {
 
             operator = upstreamOperators[sourceIndex];   // round-robin emulation for upstream operators
             operator.processElement(key);
+            stream.receiveElement(operator.getHashedKey());
 
             if (++itemCount % PRINT_INTERVAL == 0) {
                 int x = (int) (itemCount / PRINT_INTERVAL);
                 long simulationDuration = System.currentTimeMillis() - simulationStartTime;
                 System.out.println("Read " + x + "M tweets.\tSimulation time: " + simulationDuration + " ms");
-                outputPartialResultByTuple(downstreamOperators, numServers, itemCount, x, simulationDuration);
+                outputPartialResultByTuple(downstreamOperators, numServers, itemCount, String.valueOf(x),
+                        simulationDuration);
             }
 
             sourceIndex++;
@@ -209,6 +231,10 @@ public class Simulator {
 
         System.out.println();
         System.out.println("Finished reading items\nTotal items: " + itemCount);
+        if (itemCount % PRINT_INTERVAL != 0) {   // else the last report of the loop holds the totals
+            outputPartialResultByTuple(downstreamOperators, numServers, itemCount,
+                    String.valueOf(itemCount / PRINT_INTERVAL), System.currentTimeMillis() - simulationStartTime);
+        }
     }
 
     private long wordCount = 0;
@@ -227,13 +253,15 @@ public class Simulator {
 
                 operator = upstreamOperators[sourceIndex];   // round-robin emulation for upstream operators
                 operator.processElement(item[i]);
+                stream.receiveElement(operator.getHashedKey());
 
                 if (++wordCount % PRINT_INTERVAL == 0) {
                     int x = (int) (wordCount / PRINT_INTERVAL);
                     long simulationTime = System.currentTimeMillis() - simulationStartTime;
                     System.out.println("Read " + x + "M words.\tSimulation time: " + simulationTime + " ms");
 
-                    outputPartialResultByTuple(downstreamOperators, numServers, wordCount, x, simulationTime);
+                    outputPartialResultByTuple(downstreamOperators, numServers, wordCount, String.valueOf(x),
+                            simulationTime);
                 }
 
                 sourceIndex++;
@@ -248,12 +276,22 @@ public class Simulator {
 
         System.out.println();
         System.out.println("Finished reading items\nTotal words: " + wordCount);
-        return System.currentTimeMillis() - simulationStartTime;
+        long simulationTime = System.currentTimeMillis() - simulationStartTime;
+        if (wordCount % PRINT_INTERVAL != 0) {   // else the last report of the loop holds the totals
+            outputPartialResultByTuple(downstreamOperators, numServers, wordCount,
+                    String.valueOf(wordCount / PRINT_INTERVAL), simulationTime);
+        }
+        return simulationTime;
     }
 
 
-    private void outputPartialResultByTuple(Operator[] downstreamOperators, int numServers,
-                                            long temporaryCount, int x, long simulationTime) {
+    /**
+     * Prints the load imbalance, the replication factor and the cardinality imbalance after every PRINT_INTERVAL
+     * tuples. The distinct keys of the stream are counted by their own counter, so that no report merges
+     * the counters of the downstream operators.
+     */
+    private void outputPartialResultByTuple(Operator[] downstreamOperators, int numServers, long temporaryCount,
+                                            String x, long simulationTime) throws Exception {
 
         // output for load imbalance
         long maxLoad = downstreamOperators[0].getLoad();
@@ -291,18 +329,19 @@ public class Simulator {
         double cardinalityImbalance = (maxCardinality - averageCardinality) / averageCardinality;
         System.out.println("Cardinality imbalance: " + cardinalityImbalance);
 
-        long totalCardinality = partitioner.getTotalCardinality();
+        long totalCardinality = stream.getCardinality();
         double replicationFactor = allCardinality / (double) totalCardinality;
         System.out.println("Replication factor: " + allCardinality + " / " + totalCardinality + " = " + replicationFactor);
+        Operator.printMemoryFootprint(downstreamOperators, cardinalityFactory);
 
         System.out.println();
 
         String[] record = new String[5];
-        record[0] = String.valueOf(x);
+        record[0] = x;
         record[1] = String.valueOf(loadImbalance);
         record[2] = String.valueOf(replicationFactor);
         record[3] = String.valueOf(cardinalityImbalance);
-        record[3] = String.valueOf(simulationTime);
+        record[4] = String.valueOf(simulationTime);
 
         try {
             writer.writeRecord(record);
@@ -369,7 +408,7 @@ public class Simulator {
         System.out.println();
     }
 
-    private void outputFinalResultForZipf(Operator[] downstreamOperators, int numServers, long simulationTime) {
+    private void outputFinalResultForZipf(Operator[] downstreamOperators, int numServers, long simulationTime) throws Exception {
         long maxLoad = downstreamOperators[0].getLoad();
         System.out.print(downstreamOperators[0].getLoad() + ",  ");
         long temp;
@@ -415,16 +454,36 @@ public class Simulator {
         }
         System.out.println(temp);
 
-        long totalCardinality = partitioner.getTotalCardinality();
+        long totalCardinality = stream.getCardinality();
         double averageCardinality = allCardinality / numServers;
         double cardinalityImbalance = (maxCardinality - averageCardinality) / averageCardinality;
         System.out.println("Cardinality imbalance: " + cardinalityImbalance);
 
         double replicationFactor = allCardinality / (double) totalCardinality;
         System.out.println("Replication factor: " + allCardinality + " / " + totalCardinality + " = " + replicationFactor);
+        Operator.printMemoryFootprint(downstreamOperators, cardinalityFactory);
 
         System.out.println();
-        System.out.println(((HolisticPartitionerForString) partitioner).getVk().size());
+        long routingTableSize = 0;
+        long routingTableBytes = 0;
+        long evictions = 0;
+        long reclaimedReplicas = 0;
+        for (AbstractPartitioner partitioner : partitioners) {
+            AbstractRoutingTable<?> routingTable;
+            if (partitioner instanceof HolisticPartitionerForString) {
+                routingTable = ((HolisticPartitionerForString) partitioner).getVk();
+            } else if (partitioner instanceof HolisticPartitioner) {   // zipf data, whose keys are ints
+                routingTable = ((HolisticPartitioner) partitioner).getVk();
+            } else {
+                continue;
+            }
+            routingTableSize += routingTable.size();
+            routingTableBytes += routingTable.getMemoryFootprint();
+            evictions += routingTable.getEvictions();
+            reclaimedReplicas += routingTable.getReclaimedReplicas();
+        }
+        System.out.println("Routing table: " + routingTableSize + " keys, " + routingTableBytes + " bytes");
+        System.out.println("Evicted keys: " + evictions + ", reclaimed replicas: " + reclaimedReplicas);
         System.out.println();
 
         outputForZipfDifferentSkewness(writer, loadImbalance, replicationFactor, cardinalityImbalance, simulationTime);
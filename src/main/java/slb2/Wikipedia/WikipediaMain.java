@@ -16,33 +16,17 @@ public class WikipediaMain {
         int threshold = 5;   // frequency threshold of Head
 
 
-        AbstractPartitioner partitioner = null;
-
-        String outputFileName = null;
-
-        if (simulatorType == 1) {
-            partitioner = new HashPartitioner(numServers);
-            outputFileName = "hash";
-        } else if (simulatorType == 2) {
-            partitioner = new PKG_Partitioner(numServers);
-            outputFileName = "pkg";
-        } else if (simulatorType == 3) {
-            partitioner = new DChoices_Partitioner(numServers, threshold);
-            outputFileName = "d-choices";
-        } else if (simulatorType == 4) {
-            partitioner = new WChoices_Partitioner(numServers, threshold);
-            outputFileName = "w-choices";
-        } else if (simulatorType == 5) {
-            partitioner = new HolisticPartitionerForString(numServers);
-            outputFileName = "holistic";
-        }
+        // same partitioners as slb2.Main, whose simulator type of holistic is 7
+        PartitionerFactory factory = new PartitionerFactory(simulatorType == 5 ? 7 : simulatorType, numServers,
+                threshold, HolisticPartitionerForString.DEFAULT_DELTA);
+        String outputFileName = factory.getOutputFileName();
 
         final String outFilePath = "C:\\Users\\lizi\\Desktop\\Holistic_Workspace\\wikipedia_workspace";  // just path
 
         String outFilePathName = outFilePath + "\\" + "twitter_" + numServers + "_" + outputFileName + ".csv";
 
         String wikipediaFilePath = "C:\\Users\\lizi\\Desktop\\Holistic_Workspace\\dataset\\wiki_dataset\\wiki.1191201596.gz";
-        WikipediaSimulator simulator = new WikipediaSimulator(numSources, numServers, wikipediaFilePath, outFilePathName, partitioner);
+        WikipediaSimulator simulator = new WikipediaSimulator(numSources, numServers, wikipediaFilePath, outFilePathName, factory);
 
         try {
             simulator.startEmulate(wikipediaFilePath);
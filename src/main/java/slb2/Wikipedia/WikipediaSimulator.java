@@ -3,7 +3,10 @@ package slb2.Wikipedia;
 import com.csvreader.CsvWriter;
 import slb2.StreamItemReader;
 import slb2.partitioners.AbstractPartitioner;
+import slb2.partitioners.HolisticPartitionerForString;
 import slb2.partitioners.Operator;
+import slb2.partitioners.PartitionerFactory;
+import slb2.partitioners.RoutingTable;
 
 
 import java.io.*;
@@ -15,7 +18,7 @@ public class WikipediaSimulator {
     private int numServers;
     private int numSources;
     private String wikipediaFilePath;
-    private AbstractPartitioner partitioner;
+    private AbstractPartitioner[] partitioners;  // one per upstream operator
 
     private Operator[] upstreamOperators;
     private Operator[] downstreamOperators;
@@ -25,11 +28,10 @@ public class WikipediaSimulator {
     private CsvWriter writer;
 
     public WikipediaSimulator(int numSources, int numServers, String wikipediaFilePath,
-                     String outFilePathName, AbstractPartitioner partitioner) {
+                     String outFilePathName, PartitionerFactory factory) {
         this.numSources = numSources;
         this.numServers = numServers;
         this.wikipediaFilePath = wikipediaFilePath;
-        this.partitioner = partitioner;
 
 
         downstreamOperators = new Operator[numServers]; // Operators for downstream
@@ -37,9 +39,11 @@ public class WikipediaSimulator {
             downstreamOperators[i] = new Operator();
         }
 
+        partitioners = new AbstractPartitioner[numSources];
         upstreamOperators = new Operator[numSources]; // Operators for upstream
         for (int i = 0; i < numSources; i++) {
-            upstreamOperators[i] = new Operator(partitioner, downstreamOperators);
+            partitioners[i] = factory.create();
+            upstreamOperators[i] = new Operator(partitioners[i], downstreamOperators);
         }
         this.outFilePathName = outFilePathName;
     }
@@ -103,7 +107,7 @@ public class WikipediaSimulator {
         System.out.println("Processing Time per Tuple: " + simulationTotalTime / (long) itemCount + " ms");
     }
 
-    private void outputFinalResult(Operator[] downstreamOperators, int numServers) {
+    private void outputFinalResult(Operator[] downstreamOperators, int numServers) throws Exception {
         long maxLoad = downstreamOperators[0].getLoad();
         System.out.print(downstreamOperators[0].getLoad() + ",  ");
         long temp;
@@ -149,7 +153,7 @@ public class WikipediaSimulator {
         }
         System.out.println(temp);
 
-        long totalCardinality = partitioner.getTotalCardinality();
+        long totalCardinality = Operator.getTotalCardinality(downstreamOperators);
         double averageCardinality = allCardinality / numServers;
         double cardinalityImbalance = (maxCardinality - averageCardinality) / averageCardinality;
         System.out.println("Cardinality imbalance: " + cardinalityImbalance);
@@ -157,6 +161,20 @@ public class WikipediaSimulator {
         double replicationFactor = allCardinality / (double) totalCardinality;
         System.out.println("Replication factor: " + allCardinality + " / " + totalCardinality + " = " + replicationFactor);
 
+        if (partitioners[0] instanceof HolisticPartitionerForString) {
+            long routingTableSize = 0;
+            long evictions = 0;
+            long reclaimedReplicas = 0;
+            for (AbstractPartitioner partitioner : partitioners) {
+                RoutingTable routingTable = ((HolisticPartitionerForString) partitioner).getVk();
+                routingTableSize += routingTable.size();
+                evictions += routingTable.getEvictions();
+                reclaimedReplicas += routingTable.getReclaimedReplicas();
+            }
+            System.out.println("Routing table: " + routingTableSize + " keys");
+            System.out.println("Evicted keys: " + evictions + ", reclaimed replicas: " + reclaimedReplicas);
+        }
+
         System.out.println();
 
     }
@@ -1,18 +1,44 @@
 package slb2.partitioners;
 
-import util.cardinality.HyperLogLogPlus;
+import com.clearspring.analytics.stream.cardinality.CardinalityMergeException;
+import util.cardinality.IRichCardinality;
 
 
 /**
  * Abstract class for all partitioners.
+ * <p>
+ * Partitioners route a {@link HashedKey}: the same hash feeds the choices of servers and, if any, the distinct key
+ * counter. Counting the keys is optional instrumentation, off by default, so that routing pays nothing for it:
+ * the simulators count the distinct keys of the stream from the counters of the downstream operators instead,
+ * see {@link Operator#getTotalCardinality(Operator[])}.
  */
 public abstract class AbstractPartitioner implements StreamPartitioner, ICardinality {
 
-    protected HyperLogLogPlus hyperLogLog;
-    private final static int DEFAULT_LOG2M = 24;
+    protected IRichCardinality hyperLogLog;   // null unless the keys are counted, see trackCardinality
+
+    private final HashedKey hashedKey;   // for keys which are not hashed yet
 
     public AbstractPartitioner() {
-        hyperLogLog = new HyperLogLogPlus(DEFAULT_LOG2M);
+        hashedKey = new HashedKey();
+    }
+
+    /**
+     * Counts the distinct keys routed from now on, for {@link #getTotalCardinality()}.
+     * @param cardinality a new counter, e.g., from {@link CardinalityFactory}
+     */
+    public void trackCardinality(IRichCardinality cardinality) {
+        hyperLogLog = cardinality;
+    }
+
+    /**
+     * Hashes the key, then routes it.
+     * @param key
+     * @return index of selected downstream operator.
+     * @throws Exception
+     */
+    @Override
+    public int partition(Object key) throws Exception {
+        return partition(hashedKey.set(key));
     }
 
     /**
@@ -22,11 +48,47 @@ public abstract class AbstractPartitioner implements StreamPartitioner, ICardina
     @Override
     public void add(Object key) {
 //        hyperLogLog.offer(Integer.parseInt(key.toString()));  // for zipf whose data element is integer
-        hyperLogLog.offer(key);
+        add(hashedKey.set(key));   // same hash as the routed keys
     }
 
+    /**
+     * for statistics of distinct keys, given the hash of the key; does nothing unless the keys are counted
+     * @param key
+     */
+    protected void add(HashedKey key) {
+        if (hyperLogLog != null) {
+            hyperLogLog.offerHashed(key.getHash1());
+        }
+    }
+
+    /**
+     * @return number of distinct keys routed since {@link #trackCardinality(IRichCardinality)}
+     * @throws IllegalStateException if the keys are not counted
+     */
     @Override
     public long getTotalCardinality() {
+        if (hyperLogLog == null) {
+            throw new IllegalStateException(getName() + " partitioner does not count its keys");
+        }
         return hyperLogLog.cardinality();
     }
+
+    /**
+     * Number of distinct keys seen by a group of partitioners, e.g., one partitioner per upstream operator.
+     * The sketches are merged, so a key seen by several partitioners is counted only once.
+     * @param partitioners partitioners which count their keys with counters of the same kind
+     * @return
+     * @throws CardinalityMergeException
+     */
+    public static long getTotalCardinality(AbstractPartitioner[] partitioners) throws CardinalityMergeException {
+        long cardinality = partitioners[0].getTotalCardinality();   // fails if the keys are not counted
+        if (partitioners.length == 1) {
+            return cardinality;
+        }
+        IRichCardinality[] others = new IRichCardinality[partitioners.length - 1];
+        for (int i = 1; i < partitioners.length; i++) {
+            others[i - 1] = partitioners[i].hyperLogLog;
+        }
+        return partitioners[0].hyperLogLog.merge(others).cardinality();
+    }
 }
@@ -0,0 +1,289 @@
+package slb2.partitioners;
+
+import java.util.function.IntPredicate;
+
+/**
+ * Routing table from keys to sets of servers, the table mechanics shared by {@link RoutingTable} and
+ * {@link IntRoutingTable}, which only differ in how they store their keys.
+ * <p>
+ * An open-addressing table with linear probing replaces a Multimap of boxed Integers. The server set of a
+ * key is a bitset of (numServers + 63) / 64 longs, a single long up to 64 servers, and the bitsets of all
+ * keys are stored back to back in one long array. So a key costs its key slot plus its bitset, and the
+ * servers of a key are scanned in ascending order with {@link Long#numberOfTrailingZeros(long)}.
+ * A slot is free when its server set is empty, as every key has at least one server.
+ * <p>
+ * Every key remembers the time, in tuples, of its last lookup. Evicting drops the keys which are no longer heavy
+ * or have not been used for a while, so the table stays sized to the live head.
+ * @param <K> array of the keys, indexed by slot
+ */
+public abstract class AbstractRoutingTable<K> {
+
+    private static final int INITIAL_CAPACITY = 64;   // power of two
+    private static final int ARRAY_HEADER_BYTES = 16;
+
+    private final int numServers;
+    private final int words;     // longs per server set
+
+    protected K keys;
+    private long[] bits;         // server set of slot i in bits[i * words, (i + 1) * words)
+    private long[] lastUsed;     // time of the last lookup of the key
+    private int mask;
+    private int entries;
+
+    private long time;
+    private long evictions;          // keys evicted so far
+    private long reclaimedReplicas;  // servers beyond the first one of the evicted keys
+
+    protected AbstractRoutingTable(int numServers) {
+        this.numServers = numServers;
+        this.words = (numServers + 63) >>> 6;
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * @param capacity number of slots
+     * @return keys of an empty table
+     */
+    protected abstract K newKeys(int capacity);
+
+    /**
+     * @return mixed hash code of the key of the slot, see {@link util.cardinality.MurmurHash3#fmix32(int)}
+     */
+    protected abstract int hash(K keys, int slot);
+
+    protected abstract void copyKey(K from, int fromSlot, K to, int toSlot);
+
+    /**
+     * Forgets the key of a slot which is now free.
+     */
+    protected abstract void clearKey(int slot);
+
+    /**
+     * @return bytes of a key slot
+     */
+    protected abstract int getKeyBytes();
+
+    /**
+     * Sets the current time, which stamps the keys looked up from now on.
+     * @param time number of tuples seen so far
+     */
+    public void setTime(long time) {
+        this.time = time;
+    }
+
+    /**
+     * @return number of keys in the table
+     */
+    public int size() {
+        return entries;
+    }
+
+    public int getNumServers() {
+        return numServers;
+    }
+
+    /**
+     * @return number of keys evicted so far
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return number of replicas given back by the evicted keys, i.e., their servers beyond the first one
+     */
+    public long getReclaimedReplicas() {
+        return reclaimedReplicas;
+    }
+
+    /**
+     * @return estimated bytes held by the table itself, without the objects of the keys, which are shared
+     * with the stream
+     */
+    public long getMemoryFootprint() {
+        return ARRAY_HEADER_BYTES + (long) (mask + 1) * getKeyBytes()
+                + ARRAY_HEADER_BYTES + (long) bits.length * Long.BYTES
+                + ARRAY_HEADER_BYTES + (long) lastUsed.length * Long.BYTES;
+    }
+
+    /**
+     * @return slot where probing for a key of this mixed hash code starts
+     */
+    protected final int homeSlot(int hash) {
+        return hash & mask;
+    }
+
+    protected final int nextSlot(int slot) {
+        return (slot + 1) & mask;
+    }
+
+    protected final boolean isFree(int slot) {
+        return isFree(bits, slot);
+    }
+
+    /**
+     * Adds the server to the servers of the key of the slot, which the caller has just stored if the slot was free.
+     */
+    protected final void addServer(int slot, int server) {
+        boolean added = isFree(slot);
+        lastUsed[slot] = time;
+        bits[slot * words + (server >>> 6)] |= 1L << server;
+        if (added && ++entries > (mask + 1) >> 1) {
+            resize((mask + 1) << 1);
+        }
+    }
+
+    /**
+     * @return number of servers of the slot, 0 if it is free
+     */
+    protected final int countServers(int slot) {
+        int offset = slot * words;
+        int count = 0;
+        for (int w = 0; w < words; w++) {
+            count += Long.bitCount(bits[offset + w]);
+        }
+        return count;
+    }
+
+    /**
+     * @param load load of every server
+     * @return server of the slot with the least load, the lowest one on ties, or -1 if the slot is free
+     */
+    protected final int findLeastLoadedServer(int slot, long[] load) {
+        lastUsed[slot] = time;
+        int offset = slot * words;
+        int min = -1;
+        long minLoad = Long.MAX_VALUE;
+        for (int w = 0; w < words; w++) {
+            long word = bits[offset + w];
+            while (word != 0) {
+                int server = (w << 6) + Long.numberOfTrailingZeros(word);
+                if (load[server] < minLoad) {
+                    minLoad = load[server];
+                    min = server;
+                }
+                word &= word - 1;
+            }
+        }
+        return min;
+    }
+
+    /**
+     * @param load load of every server
+     * @return average load over the servers of the slot, or -1 if the slot is free
+     */
+    protected final long getAverageServerLoad(int slot, long[] load) {
+        lastUsed[slot] = time;
+        int offset = slot * words;
+        long sum = 0;
+        int count = 0;
+        for (int w = 0; w < words; w++) {
+            long word = bits[offset + w];
+            while (word != 0) {
+                sum += load[(w << 6) + Long.numberOfTrailingZeros(word)];
+                count++;
+                word &= word - 1;
+            }
+        }
+        return count == 0 ? -1 : sum / count;
+    }
+
+    /**
+     * Removes the keys which are expired or were last looked up before the given time.
+     * @param expired tells whether the key of a slot is no longer needed, e.g., it left the frequency summary
+     * @param minLastUsed keys whose last lookup is before this time are removed too, 0 to keep them
+     * @return number of keys removed
+     */
+    protected final int evictSlots(IntPredicate expired, long minLastUsed) {
+        if (entries == 0) {
+            return 0;
+        }
+        // start after a free slot, so no cluster wraps around the start and entries shifted
+        // back into the current slot are examined again
+        int start = 0;
+        while (!isFree(start)) {
+            start++;
+        }
+        int removed = 0;
+        for (int n = 0; n <= mask; n++) {
+            int slot = (start + 1 + n) & mask;
+            while (!isFree(slot) && (lastUsed[slot] < minLastUsed || expired.test(slot))) {
+                reclaimedReplicas += countServers(slot) - 1;
+                delete(slot);
+                removed++;
+            }
+        }
+        evictions += removed;
+
+        int capacity = mask + 1;
+        while (capacity > INITIAL_CAPACITY && entries < capacity >> 3) {   // give memory back
+            capacity >>= 1;
+        }
+        if (capacity < mask + 1) {
+            resize(capacity);
+        }
+        return removed;
+    }
+
+    /**
+     * Backward-shift deletion: moves the following entries of the cluster that may live
+     * in the freed slot into it, so that every key stays reachable from its home slot.
+     */
+    private void delete(int slot) {
+        entries--;
+        int free = slot;
+        int next = (free + 1) & mask;
+        while (!isFree(next)) {
+            int home = hash(keys, next) & mask;
+            // the entry can move to the free slot when its home is not in (free, next]
+            if (((next - home) & mask) >= ((next - free) & mask)) {
+                copyKey(keys, next, keys, free);
+                System.arraycopy(bits, next * words, bits, free * words, words);
+                lastUsed[free] = lastUsed[next];
+                free = next;
+            }
+            next = (next + 1) & mask;
+        }
+        clearKey(free);
+        for (int w = 0; w < words; w++) {
+            bits[free * words + w] = 0;
+        }
+    }
+
+    private void resize(int capacity) {
+        K oldKeys = keys;
+        long[] oldBits = bits;
+        long[] oldLastUsed = lastUsed;
+        int oldCapacity = mask + 1;
+
+        allocate(capacity);
+        for (int i = 0; i < oldCapacity; i++) {
+            if (!isFree(oldBits, i)) {
+                int slot = hash(oldKeys, i) & mask;   // the keys are distinct, so the first free slot is theirs
+                while (!isFree(slot)) {
+                    slot = (slot + 1) & mask;
+                }
+                copyKey(oldKeys, i, keys, slot);
+                System.arraycopy(oldBits, i * words, bits, slot * words, words);
+                lastUsed[slot] = oldLastUsed[i];
+            }
+        }
+    }
+
+    private boolean isFree(long[] bits, int slot) {
+        int offset = slot * words;
+        for (int w = 0; w < words; w++) {
+            if (bits[offset + w] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void allocate(int capacity) {
+        keys = newKeys(capacity);
+        bits = new long[capacity * words];
+        lastUsed = new long[capacity];
+        mask = capacity - 1;
+    }
+}
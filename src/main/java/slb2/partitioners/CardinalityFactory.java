@@ -0,0 +1,99 @@
+package slb2.partitioners;
+
+import util.cardinality.ExactCardinality;
+import util.cardinality.HyperLogLog;
+import util.cardinality.HyperLogLogPlus;
+import util.cardinality.IRichCardinality;
+
+/**
+ * Creates the distinct key counters of the downstream operators, one fresh instance per operator.
+ * <p>
+ * A HyperLogLog++ at p = 24 holds about 10 MB of registers, so runs with many servers should use a lower precision
+ * or the sparse HyperLogLog++, whose memory grows by 4 bytes per key of the server until it switches to the
+ * registers of p at 0.75 * 2^p keys; it pays off on servers with less than about 2^p / 6 keys.
+ * The exact counter is meant for small runs only.
+ */
+public class CardinalityFactory {
+
+    public static final String HLL_PLUS = "hllp";
+    public static final String HLL_PLUS_SPARSE = "hllp-sparse";
+    public static final String HLL = "hll";
+    public static final String EXACT = "exact";
+
+    private static final String[] NAMES = {HLL_PLUS, HLL_PLUS_SPARSE, HLL, EXACT};
+
+    private static final int DEFAULT_HLL_PLUS_PRECISION = 24;
+    private static final int DEFAULT_PRECISION = 14;       // for the sparse HyperLogLog++ and the HyperLogLog
+    private static final int SPARSE_PRECISION = 25;
+
+    private final String name;
+    private final int precision;
+
+    /**
+     * The HyperLogLog++ at p = 24 of the original simulations.
+     */
+    public CardinalityFactory() {
+        this(HLL_PLUS);
+    }
+
+    /**
+     * @param name one of {@link #getNames()}
+     */
+    public CardinalityFactory(String name) {
+        this(name, name.equals(HLL_PLUS) ? DEFAULT_HLL_PLUS_PRECISION : DEFAULT_PRECISION);
+    }
+
+    /**
+     * @param name one of {@link #getNames()}
+     * @param precision number of bits of the register index, ignored by the exact counter
+     */
+    public CardinalityFactory(String name, int precision) {
+        boolean known = false;
+        for (String n : NAMES) {
+            known |= n.equals(name);
+        }
+        if (!known) {
+            throw new IllegalArgumentException("Unknown cardinality counter: " + name);
+        }
+        this.name = name;
+        this.precision = precision;
+    }
+
+    /**
+     * @return a new, empty counter
+     */
+    public IRichCardinality create() {
+        switch (name) {
+            case HLL_PLUS_SPARSE:
+                return new HyperLogLogPlus(precision, Math.max(precision, SPARSE_PRECISION));
+            case HLL:
+                return new HyperLogLog(precision);
+            case EXACT:
+                return new ExactCardinality();
+            default:
+                return new HyperLogLogPlus(precision);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    /**
+     * @return the name, followed by the precision unless the counter is exact, e.g., hll-14
+     */
+    public String getDescription() {
+        return name.equals(EXACT) ? name : name + "-" + precision;
+    }
+
+    /**
+     * @return names of the known counters
+     */
+    public static String[] getNames() {
+        return NAMES.clone();
+    }
+}
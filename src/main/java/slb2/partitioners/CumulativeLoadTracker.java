@@ -0,0 +1,42 @@
+package slb2.partitioners;
+
+/**
+ * Load of every server since the start of the stream.
+ */
+public class CumulativeLoadTracker implements LoadTracker {
+
+    private final long[] load;
+    private long totalLoad;
+    private MinLoadTree tree;   // built on the first lookup of the least loaded server
+
+    public CumulativeLoadTracker(int numServers) {
+        this.load = new long[numServers];
+    }
+
+    @Override
+    public void increment(int server) {
+        load[server]++;
+        totalLoad++;
+        if (tree != null) {
+            tree.update(server);
+        }
+    }
+
+    @Override
+    public long[] getLoads() {
+        return load;
+    }
+
+    @Override
+    public long getTotalLoad() {
+        return totalLoad;
+    }
+
+    @Override
+    public int getLeastLoaded() {
+        if (tree == null) {
+            tree = new MinLoadTree(load);
+        }
+        return tree.getLeastLoaded();
+    }
+}
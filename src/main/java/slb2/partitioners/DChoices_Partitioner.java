@@ -1,89 +1,91 @@
 package slb2.partitioners;
 
-import com.clearspring.analytics.stream.Counter;
-import com.clearspring.analytics.stream.StreamSummary;
-import com.google.common.hash.HashFunction;
-import com.google.common.hash.Hashing;
-import slb.Constants;
-
-import java.util.HashMap;
-import java.util.List;
-
 public class DChoices_Partitioner extends AbstractPartitioner {
 
     private int numServers;
-    private long localLoad[];
-    private StreamSummary<String> streamSummary;
+    private LoadTracker localLoad;
+    private HeadDetector headDetector;
 
-    private Seed seed;
-    private HashFunction[] hashes;
-    private long totalElement;
+    private int[] selected;            // candidate servers, only the first d entries are used
     private int threshold;
     private float epsilon;
 
     private static final float DEFAULT_EPSILON = 0.0001f;
+    private static final long DEFAULT_EPOCH_TUPLES = 1000;
+
+    // d depends on the head only, not on the key, so one cached value serves every head key
+    private int cachedChoices;
+    private int cachedHeadSize;        // head size when d was computed, a change of the head refreshes d
+    private long epochTuples;          // refresh d after this many tuples, 0 to disable
+    private long epochMillis;          // refresh d after this many milliseconds, 0 to disable
+    private long nextEpochTuple;
+    private long nextEpochTime;
+    private long solverInvocations;
 
     public DChoices_Partitioner(int numServers, int threshold) {
-        super();
-        this.numServers = numServers;
-        this.localLoad = new long[numServers];
-        this.streamSummary = new StreamSummary<>(Constants.STREAM_SUMMARY_CAPACITY);
-        this.seed = new Seed(numServers);
+        this(numServers, threshold, DEFAULT_EPOCH_TUPLES, 0);
+    }
 
-        hashes = new HashFunction[numServers];
+    public DChoices_Partitioner(int numServers, int threshold, HeadDetectorFactory detectors) {
+        this(numServers, threshold, detectors, new CumulativeLoadTracker(numServers));
+    }
 
-        for (int i = 0; i < hashes.length; i++) {
-            hashes[i] = Hashing.murmur3_128(seed.getSeed(i));
-        }
+    public DChoices_Partitioner(int numServers, int threshold, HeadDetectorFactory detectors, LoadTracker localLoad) {
+        this(numServers, threshold, DEFAULT_EPOCH_TUPLES, 0, detectors, localLoad);
+    }
+
+    /**
+     * @param numServers
+     * @param threshold frequency threshold of Head
+     * @param epochTuples number of tuples after which d is computed again, 0 to disable
+     * @param epochMillis milliseconds after which d is computed again, 0 to disable
+     */
+    public DChoices_Partitioner(int numServers, int threshold, long epochTuples, long epochMillis) {
+        this(numServers, threshold, epochTuples, epochMillis, new HeadDetectorFactory(HeadDetectorFactory.SPACE_SAVING),
+                new CumulativeLoadTracker(numServers));
+    }
+
+    /**
+     * @param numServers
+     * @param threshold frequency threshold of Head
+     * @param epochTuples number of tuples after which d is computed again, 0 to disable
+     * @param epochMillis milliseconds after which d is computed again, 0 to disable
+     * @param detectors creates the detector of the head
+     * @param localLoad tracks the load of the servers
+     */
+    public DChoices_Partitioner(int numServers, int threshold, long epochTuples, long epochMillis,
+                                HeadDetectorFactory detectors, LoadTracker localLoad) {
+        super();
+        this.numServers = numServers;
+        this.localLoad = localLoad;
+        this.headDetector = detectors.create(2 / (float) (numServers * threshold));
+        this.selected = new int[numServers];
         this.threshold = threshold;
         this.epsilon = DEFAULT_EPSILON;
+        this.epochTuples = epochTuples;
+        this.epochMillis = epochMillis;
+        this.cachedHeadSize = -1;
     }
 
     @Override
-    public int partition(Object key) throws Exception {
+    public int partition(HashedKey key) throws Exception {
         add(key);
-        totalElement++;
-        streamSummary.offer(key.toString());
 
         int choices = 2;
-        float probability = choices / (float) (numServers * threshold);
-
-        HashMap<String, Long> topK = getTopK(streamSummary, probability, totalElement);
-
-        if (topK.containsKey(key.toString())) {
-            double topFrequency = getTopFrequency(streamSummary, totalElement);
-            PHeadCount pHead = getPHead(streamSummary, probability, totalElement);
-            double pTail = 1 - pHead.probability;
-            double n = (double) numServers;
-            double val1 = (n - 1) / n;
-            int d = (int) Math.round(topFrequency * n);
-            double val2, val3, val4, sum1;
-            double sum2, value1, value2, value3, value4;
-            do {
-                //finding sum Head
-                val2 = Math.pow(val1, pHead.numberOfElements * d);
-                val3 = 1 - val2;
-                val4 = Math.pow(val3, 2);
-                sum1 = pHead.probability + pTail * val4;
-
-                //finding sum1
-                value1 = Math.pow(val1, d);
-                value2 = 1 - value1;
-                value3 = Math.pow(value2, d);
-                value4 = Math.pow(value2, 2);
-                sum2 = topFrequency + ((pHead.probability - topFrequency) * value3) + (pTail * value4);
-                d++;
-            } while ((d <= numServers) && ((sum1 > (0 + epsilon)) || (sum2 > (value2 + epsilon))));
-            choices = d - 1;
+
+        if (headDetector.offerAndCheck(key.getKey().toString())) {
+            if (isEpochOver()) {
+                cachedChoices = solveChoices();
+            }
+            choices = cachedChoices;
         }
 
         //Hash the key accordingly
         int i = 0;
-        int[] selected = new int[choices];
 
         if (choices < numServers) {
             while (i < choices) {
-                selected[i] = Math.abs(hashes[i].hashBytes(key.toString().getBytes()).asInt() % numServers);
+                selected[i] = key.choice(i, numServers);
                 i++;
             }
         } else {
@@ -93,8 +95,8 @@ public class DChoices_Partitioner extends AbstractPartitioner {
             }
         }
 
-        int chosen = chooseMinLoad(localLoad, selected);
-        localLoad[chosen]++;
+        int chosen = chooseMinLoad(localLoad.getLoads(), selected, choices);
+        localLoad.increment(chosen);
 
         return chosen;
     }
@@ -104,60 +106,76 @@ public class DChoices_Partitioner extends AbstractPartitioner {
         return "D-Choices";
     }
 
-    private int chooseMinLoad(long[] localLoad, int[] selected) {
-        int min = selected[0];
-        long minOne = localLoad[selected[0]];
-        for (int i = 1; i < selected.length; i++) {
-            if (localLoad[selected[i]] < minOne) {
-                minOne = localLoad[selected[i]];
-                min = selected[i];
+    /**
+     * The head changes slowly, so d is only computed again when the head size changes or an epoch is over.
+     * @return
+     */
+    private boolean isEpochOver() {
+        long totalItems = headDetector.getTotalItems();
+        boolean over = (epochTuples <= 0 && epochMillis <= 0)   // caching disabled
+                || headDetector.getHeadSize() != cachedHeadSize
+                || (epochTuples > 0 && totalItems >= nextEpochTuple)
+                || (epochMillis > 0 && System.currentTimeMillis() >= nextEpochTime);
+        if (over) {
+            cachedHeadSize = headDetector.getHeadSize();
+            nextEpochTuple = totalItems + epochTuples;
+            if (epochMillis > 0) {
+                nextEpochTime = System.currentTimeMillis() + epochMillis;
             }
         }
-        return min;
+        return over;
     }
 
-    private HashMap<String, Long> getTopK(StreamSummary<String> streamSummary, float probability, long totalItems) {
-        HashMap<String, Long> topK = new HashMap<>();
-        List<Counter<String>> counters = streamSummary.topK(streamSummary.getCapacity());
-
-        for (Counter<String> counter : counters) {
-            float count = counter.getCount();
-            float error = counter.getError();
-            float itemProb = (count + error) / totalItems;
-            if (itemProb > probability) {
-                topK.put(counter.getItem(), counter.getCount());
-            }
-        }
-        return topK;
+    /**
+     * Finds the smallest number of choices d that keeps the head balanced.
+     * @return
+     */
+    private int solveChoices() {
+        solverInvocations++;
+        double topFrequency = headDetector.getTopFrequency();
+        double pHead = headDetector.getHeadProbability();
+        int headSize = headDetector.getHeadSize();
+        double pTail = 1 - pHead;
+        double n = (double) numServers;
+        double val1 = (n - 1) / n;
+        int d = (int) Math.round(topFrequency * n);
+        double val2, val3, val4, sum1;
+        double sum2, value1, value2, value3, value4;
+        do {
+            //finding sum Head
+            val2 = Math.pow(val1, headSize * d);
+            val3 = 1 - val2;
+            val4 = Math.pow(val3, 2);
+            sum1 = pHead + pTail * val4;
+
+            //finding sum1
+            value1 = Math.pow(val1, d);
+            value2 = 1 - value1;
+            value3 = Math.pow(value2, d);
+            value4 = Math.pow(value2, 2);
+            sum2 = topFrequency + ((pHead - topFrequency) * value3) + (pTail * value4);
+            d++;
+        } while ((d <= numServers) && ((sum1 > (0 + epsilon)) || (sum2 > (value2 + epsilon))));
+        return d - 1;
     }
 
-    private PHeadCount getPHead(StreamSummary<String> streamSummary, double probability, long totalItems) {
-        PHeadCount pHeadCount = new PHeadCount();
-        pHeadCount.probability = 0;
-
-        List<Counter<String>> counters = streamSummary.topK(streamSummary.getCapacity());
-
-        for (Counter<String> counter : counters) {
-            float count = counter.getCount();
-            float error = counter.getError();
-            float itemProb = (count + error) / totalItems;
-            if (itemProb > probability) {
-                pHeadCount.probability += itemProb;
-                pHeadCount.numberOfElements++;
-            }
-        }
-        return pHeadCount;
+    /**
+     * @return number of times d was computed
+     */
+    public long getSolverInvocations() {
+        return solverInvocations;
     }
 
-    private float getTopFrequency(StreamSummary<String> streamSummary, long totalItems) {
-        List<Counter<String>> counters = streamSummary.topK(1);
-        for (Counter<String> counter : counters) {
-            float count = counter.getCount();
-            float error = counter.getError();
-            float frequency = (count + error) / totalItems;
-            return frequency;
+    private int chooseMinLoad(long[] localLoad, int[] selected, int choices) {
+        int min = selected[0];
+        long minOne = localLoad[selected[0]];
+        for (int i = 1; i < choices; i++) {
+            if (localLoad[selected[i]] < minOne) {
+                minOne = localLoad[selected[i]];
+                min = selected[i];
+            }
         }
-        return 0f;
+        return min;
     }
 
 }
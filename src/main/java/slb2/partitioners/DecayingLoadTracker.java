@@ -0,0 +1,67 @@
+package slb2.partitioners;
+
+/**
+ * Exponentially decayed load: every half-life tuples, the loads of all servers are halved, so a tuple counts
+ * for half as much after each half-life. The load differences of the past shrink the same way, so a server
+ * which was idle catches up within a few half-lives, instead of taking every tuple until its total is even.
+ */
+public class DecayingLoadTracker implements LoadTracker {
+
+    private final long[] load;
+    private final long halfLife;
+    private long totalLoad;
+    private long tuples;
+    private MinLoadTree tree;   // built on the first lookup of the least loaded server
+
+    /**
+     * @param numServers
+     * @param halfLife number of tuples after which the loads are halved
+     */
+    public DecayingLoadTracker(int numServers, long halfLife) {
+        if (halfLife <= 0) {
+            throw new IllegalArgumentException("Half-life has to be > 0.");
+        }
+        this.load = new long[numServers];
+        this.halfLife = halfLife;
+    }
+
+    @Override
+    public void increment(int server) {
+        load[server]++;
+        totalLoad++;
+        if (++tuples % halfLife == 0) {
+            totalLoad = 0;
+            for (int i = 0; i < load.length; i++) {
+                load[i] >>= 1;
+                totalLoad += load[i];
+            }
+            if (tree != null) {
+                tree.rebuild();   // halving keeps the order, but may turn loads into ties
+            }
+        } else if (tree != null) {
+            tree.update(server);
+        }
+    }
+
+    @Override
+    public long[] getLoads() {
+        return load;
+    }
+
+    @Override
+    public long getTotalLoad() {
+        return totalLoad;
+    }
+
+    @Override
+    public int getLeastLoaded() {
+        if (tree == null) {
+            tree = new MinLoadTree(load);
+        }
+        return tree.getLeastLoaded();
+    }
+
+    public long getHalfLife() {
+        return halfLife;
+    }
+}
@@ -0,0 +1,114 @@
+package slb2.partitioners;
+
+import util.load.FrequencyException;
+import util.load.IRichFrequency;
+
+/**
+ * Head detector over any frequency summary, e.g., {@link util.load.LossyCounting} or {@link util.load.StickySampling}.
+ * <p>
+ * Membership of a key is decided from its estimated count on every offer, relative to the size of the summary,
+ * which is the decayed number of elements for {@link util.load.DecayingCounting}. The size, the probability mass and
+ * the top frequency of the head need a scan of the summary, so they are computed when asked for and then kept
+ * for a number of tuples: the head changes slowly, and the partitioners only use them to tune their choices.
+ */
+public class FrequencyHeadDetector implements HeadDetector {
+
+    private static final long DEFAULT_REFRESH_TUPLES = 1000;
+
+    private final IRichFrequency<String> frequency;
+    private final float probability;   // minimal frequency of the head
+    private final long refreshTuples;  // number of tuples the head statistics are kept
+    private long totalItems;
+
+    private long nextRefresh;
+    private int headSize;
+    private long headCount;            // sum of the estimated counts over the head
+    private long topCount;             // highest estimated count
+
+    public FrequencyHeadDetector(IRichFrequency<String> frequency, float probability) {
+        this(frequency, probability, DEFAULT_REFRESH_TUPLES);
+    }
+
+    /**
+     * @param frequency summary of the key frequencies, empty
+     * @param probability minimal frequency of the head
+     * @param refreshTuples number of tuples after which the head statistics are computed again
+     */
+    public FrequencyHeadDetector(IRichFrequency<String> frequency, float probability, long refreshTuples) {
+        this.frequency = frequency;
+        this.probability = probability;
+        this.refreshTuples = refreshTuples;
+    }
+
+    @Override
+    public boolean offerAndCheck(String key) {
+        totalItems++;
+        try {
+            frequency.add(key);
+        } catch (FrequencyException e) {
+            e.printStackTrace();
+        }
+        return isFrequent(frequency.estimateCount(key));
+    }
+
+    @Override
+    public boolean isHead(String key) {
+        return frequency.size() > 0 && isFrequent(frequency.estimateCount(key));
+    }
+
+    @Override
+    public boolean contains(String key) {
+        return frequency.contains(key);
+    }
+
+    @Override
+    public double getHeadProbability() {
+        refresh();
+        return frequency.size() == 0 ? 0 : headCount / (double) frequency.size();
+    }
+
+    @Override
+    public int getHeadSize() {
+        refresh();
+        return headSize;
+    }
+
+    @Override
+    public float getTopFrequency() {
+        refresh();
+        return frequency.size() == 0 ? 0f : (float) topCount / frequency.size();
+    }
+
+    @Override
+    public long getTotalItems() {
+        return totalItems;
+    }
+
+    public IRichFrequency<String> getFrequency() {
+        return frequency;
+    }
+
+    private boolean isFrequent(long count) {
+        return (float) count / frequency.size() > probability;
+    }
+
+    private void refresh() {
+        if (totalItems < nextRefresh) {
+            return;
+        }
+        nextRefresh = totalItems + refreshTuples;
+        headSize = 0;
+        headCount = 0;
+        topCount = 0;
+        for (String key : frequency.keySet()) {
+            long count = frequency.estimateCount(key);
+            if (isFrequent(count)) {
+                headSize++;
+                headCount += count;
+            }
+            if (count > topCount) {
+                topCount = count;
+            }
+        }
+    }
+}
@@ -1,26 +1,19 @@
 package slb2.partitioners;
 
-import com.google.common.hash.HashFunction;
-import com.google.common.hash.Hashing;
-
 public class HashPartitioner extends AbstractPartitioner {
 
     private int numServers;
 
-    private HashFunction hash;
-
-
     public HashPartitioner(int numServers) {
         super();
         this.numServers = numServers;
-        this.hash = Hashing.murmur3_128(13);
     }
 
     @Override
-    public int partition(Object key) throws Exception {
+    public int partition(HashedKey key) throws Exception {
 //        return Math.abs(MurmurHash.getInstance().hash(key) % numServers);
         add(key);
-        return Math.abs(hash.hashBytes(key.toString().getBytes()).asInt() % numServers);
+        return key.choice(0, numServers);
     }
 
     @Override
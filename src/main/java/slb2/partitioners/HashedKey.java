@@ -0,0 +1,107 @@
+package slb2.partitioners;
+
+import util.cardinality.Hash;
+
+import java.util.Arrays;
+
+/**
+ * Key of a tuple together with its 128-bit MurmurHash3, {@link Hash#stableHash128(Object, int, long[])},
+ * computed once when the key is set.
+ * <p>
+ * All candidate servers of a key are derived from the two halves of the hash by double hashing,
+ * candidate i = (h1 + i * step) mod numServers, so routing a tuple to d choices needs one hash instead of d,
+ * and no byte array. The step is drawn by h2 among the numbers coprime with numServers, so the first numServers
+ * candidates of a key are distinct servers; with a power of two servers, the step is any odd number.
+ * Strings are hashed on their chars and integral keys on their value, so setting a key allocates nothing.
+ * The lower 64 bits are also offered to the distinct key counters of the partitioner and of the downstream
+ * operator, so a tuple is hashed once from source to sink.
+ * An instance is meant to be owned by one upstream operator, or partitioner, and reused for every tuple.
+ */
+public class HashedKey {
+
+    public static final int DEFAULT_SEED = Hash.STABLE_SEED;
+
+    private final int seed;
+    private final long[] hash = new long[2];
+    private Object key;
+
+    private int stepsOf;    // numServers of steps
+    private int[] steps;    // numbers in [1, numServers) coprime with numServers
+
+    public HashedKey() {
+        this(DEFAULT_SEED);
+    }
+
+    public HashedKey(int seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Sets the key and computes its hash.
+     * @param key
+     * @return this
+     */
+    public HashedKey set(Object key) {
+        this.key = key;
+        Hash.stableHash128(key, seed, hash);
+        return this;
+    }
+
+    public Object getKey() {
+        return key;
+    }
+
+    /**
+     * @return lower 64 bits of the hash
+     */
+    public long getHash1() {
+        return hash[0];
+    }
+
+    /**
+     * @return upper 64 bits of the hash
+     */
+    public long getHash2() {
+        return hash[1];
+    }
+
+    /**
+     * @param i index of the choice, from 0
+     * @param numServers
+     * @return i-th candidate server of the key
+     */
+    public int choice(int i, int numServers) {
+        int first = (int) ((hash[0] & Long.MAX_VALUE) % numServers);
+        if (i == 0 || numServers == 1) {
+            return first;
+        }
+        if (stepsOf != numServers) {
+            steps = coprimes(numServers);
+            stepsOf = numServers;
+        }
+        long step = steps[(int) ((hash[1] & Long.MAX_VALUE) % steps.length)];
+        return (int) ((first + i * step) % numServers);
+    }
+
+    /**
+     * @param n greater than 1
+     * @return the numbers in [1, n) coprime with n, in increasing order
+     */
+    private static int[] coprimes(int n) {
+        int[] coprimes = new int[n - 1];
+        int count = 0;
+        for (int step = 1; step < n; step++) {
+            int a = step;
+            int b = n;
+            while (b != 0) {
+                int t = a % b;
+                a = b;
+                b = t;
+            }
+            if (a == 1) {
+                coprimes[count++] = step;
+            }
+        }
+        return Arrays.copyOf(coprimes, count);
+    }
+}
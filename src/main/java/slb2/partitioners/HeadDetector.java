@@ -0,0 +1,50 @@
+package slb2.partitioners;
+
+/**
+ * Finds the head of the stream, i.e., the keys whose estimated frequency is above a given probability,
+ * for the partitioners which treat the head and the tail differently.
+ * <p>
+ * {@link HeadTracker} is the Space-Saving one; {@link FrequencyHeadDetector} adapts any
+ * {@link util.load.IRichFrequency}. {@link HeadDetectorFactory} creates them by name.
+ */
+public interface HeadDetector {
+
+    /**
+     * Counts one occurrence of the key.
+     * @param key
+     * @return whether the key is in the head afterwards
+     */
+    boolean offerAndCheck(String key);
+
+    /**
+     * @param key
+     * @return whether the key is in the head, as of the last offer
+     */
+    boolean isHead(String key);
+
+    /**
+     * @param key
+     * @return whether the key is still counted by the frequency summary
+     */
+    boolean contains(String key);
+
+    /**
+     * @return probability mass of the head
+     */
+    double getHeadProbability();
+
+    /**
+     * @return number of keys in the head
+     */
+    int getHeadSize();
+
+    /**
+     * @return estimated frequency of the most frequent key
+     */
+    float getTopFrequency();
+
+    /**
+     * @return number of keys offered so far
+     */
+    long getTotalItems();
+}
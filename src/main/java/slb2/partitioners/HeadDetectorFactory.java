@@ -0,0 +1,103 @@
+package slb2.partitioners;
+
+import slb.Constants;
+import util.load.CountMinSketch;
+import util.load.DecayingCounting;
+import util.load.LossyCounting;
+import util.load.StickySampling;
+
+/**
+ * Creates head detectors of one kind, so that every partitioner can own a fresh instance.
+ * The error of the summaries is a tenth of the probability of the head, as in the holistic partitioners.
+ */
+public class HeadDetectorFactory {
+
+    public static final String SPACE_SAVING = "space-saving";
+    public static final String LOSSY_COUNTING = "lossy-counting";
+    public static final String STICKY_SAMPLING = "sticky-sampling";
+    public static final String COUNT_MIN = "count-min";
+    public static final String DECAYING = "decaying";
+
+    private static final String[] NAMES = {SPACE_SAVING, LOSSY_COUNTING, STICKY_SAMPLING, COUNT_MIN, DECAYING};
+
+    public static final long DEFAULT_HALF_LIFE = 1000000;     // tuples, for the decaying counting
+
+    private static final double FAILURE_PROBABILITY = 0.01;   // for sticky sampling and count-min
+    private static final int MAX_SKETCH_WIDTH = 1 << 20;      // counters per row of a count-min sketch, 40 MB in all
+
+    private final String name;
+    private final long halfLife;
+
+    /**
+     * @param name one of {@link #getNames()}
+     */
+    public HeadDetectorFactory(String name) {
+        this(name, DEFAULT_HALF_LIFE);
+    }
+
+    /**
+     * @param name one of {@link #getNames()}
+     * @param halfLife number of tuples after which the counts of the decaying counting are halved
+     */
+    public HeadDetectorFactory(String name, long halfLife) {
+        boolean known = false;
+        for (String n : NAMES) {
+            known |= n.equals(name);
+        }
+        if (!known) {
+            throw new IllegalArgumentException("Unknown head detector: " + name);
+        }
+        this.name = name;
+        this.halfLife = halfLife;
+    }
+
+    /**
+     * @param probability minimal frequency of the head
+     * @return a new, empty head detector
+     * @throws IllegalArgumentException if a count-min sketch would need more than MAX_SKETCH_WIDTH counters per row
+     * for the error of this probability
+     */
+    public HeadDetector create(float probability) {
+        double error = probability * 0.1;
+        switch (name) {
+            case LOSSY_COUNTING:
+                return new FrequencyHeadDetector(new LossyCounting<String>(error), probability);
+            case STICKY_SAMPLING:
+                return new FrequencyHeadDetector(
+                        new StickySampling<String>(probability, error, FAILURE_PROBABILITY), probability);
+            case COUNT_MIN:
+                checkProbability(probability);
+                return new FrequencyHeadDetector(new CountMinSketch<String>(
+                        error, FAILURE_PROBABILITY, Constants.STREAM_SUMMARY_CAPACITY), probability);
+            case DECAYING:
+                return new FrequencyHeadDetector(new DecayingCounting<String>(halfLife, error), probability);
+            default:
+                return new HeadTracker(Constants.STREAM_SUMMARY_CAPACITY, probability);
+        }
+    }
+
+    /**
+     * @param probability minimal frequency of the head
+     * @throws IllegalArgumentException if this kind of detector cannot bound its error for this probability:
+     * a count-min sketch would need more than MAX_SKETCH_WIDTH counters per row, as a narrower one would not
+     */
+    public void checkProbability(float probability) {
+        double error = probability * 0.1;
+        if (name.equals(COUNT_MIN) && Math.ceil(Math.E / error) > MAX_SKETCH_WIDTH) {
+            throw new IllegalArgumentException("A count-min head detector needs e / " + error
+                    + " counters per row for a head probability of " + probability + ", more than "
+                    + MAX_SKETCH_WIDTH + ". Use a larger probability or another head detector.");
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return names of the known head detectors
+     */
+    public static String[] getNames() {
+        return NAMES.clone();
+    }
+}
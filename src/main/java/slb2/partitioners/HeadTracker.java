@@ -0,0 +1,159 @@
+package slb2.partitioners;
+
+import util.load.SpaceSaving;
+import util.load.SpaceSaving.Counter;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Stream-Summary that keeps its head up to date incrementally. The head holds the keys whose estimated
+ * frequency, (count + error) / total, is above a given probability.
+ * <p>
+ * Only the counter of the offered key changes on an offer, so membership is re-evaluated for that key alone.
+ * Keys which are not offered can only leave the head as the total grows, which is caught by a sweep over the
+ * (small) head when the earliest possible expiry is reached. Thus the head membership, the probability mass of
+ * the head and the top frequency are all available in O(1), without topK() scans.
+ */
+public class HeadTracker extends SpaceSaving<String> implements HeadDetector {
+
+    private final float probability;   // minimal frequency of the head
+    private long totalItems;
+
+    private final Map<String, long[]> head;  // key -> count + error of its counter
+    private long headCount;                  // sum of count + error over the head
+    private long nextExpiry;                 // number of items from which a key of the head may leave it
+
+    private Counter<String> lastCounter;     // counter of the key offered last
+    private Counter<String> topCounter;      // counter with the highest count, the highest error on ties
+
+    public HeadTracker(int capacity, float probability) {
+        super(capacity);
+        this.probability = probability;
+        this.head = new HashMap<>();
+        this.nextExpiry = Long.MAX_VALUE;
+    }
+
+    /**
+     * Offers the key to the Stream-Summary.
+     * @param key
+     * @return whether the key is in the head afterwards
+     */
+    @Override
+    public boolean offerAndCheck(String key) {
+        totalItems++;
+        String dropped = offerReturnDropped(key, 1);
+        if (dropped != null) {
+            leave(dropped);
+        }
+        if (totalItems >= nextExpiry) {
+            expire();
+        }
+
+        long value = lastCounter.getCount() + lastCounter.getError();
+        long[] member = head.get(key);
+        if (isFrequent(value)) {
+            if (member == null) {
+                head.put(key, new long[]{value});
+                headCount += value;
+            } else {
+                headCount += value - member[0];
+                member[0] = value;
+            }
+            updateNextExpiry(value);
+            return true;
+        }
+        if (member != null) {
+            leave(key);
+        }
+        return false;
+    }
+
+    /**
+     * @param key
+     * @return whether the key is in the head, as of the last offer
+     */
+    @Override
+    public boolean isHead(String key) {
+        return head.containsKey(key);
+    }
+
+    /**
+     * @return probability mass of the head
+     */
+    @Override
+    public double getHeadProbability() {
+        return totalItems == 0 ? 0 : headCount / (double) totalItems;
+    }
+
+    /**
+     * @return number of keys in the head
+     */
+    @Override
+    public int getHeadSize() {
+        return head.size();
+    }
+
+    /**
+     * @return estimated frequency of the most frequent key
+     */
+    @Override
+    public float getTopFrequency() {
+        if (topCounter == null) {
+            return 0f;
+        }
+        float count = topCounter.getCount();
+        float error = topCounter.getError();
+        return (count + error) / totalItems;
+    }
+
+    @Override
+    public long getTotalItems() {
+        return totalItems;
+    }
+
+    @Override
+    protected void incremented(Counter<String> counter) {
+        lastCounter = counter;
+        if (topCounter == null || lastCounter.getCount() > topCounter.getCount()
+                || (lastCounter.getCount() == topCounter.getCount() && lastCounter.getError() > topCounter.getError())) {
+            topCounter = lastCounter;
+        }
+    }
+
+    private boolean isFrequent(long value) {
+        return (float) value / totalItems > probability;
+    }
+
+    private void leave(String key) {
+        long[] member = head.remove(key);
+        if (member != null) {
+            headCount -= member[0];
+        }
+    }
+
+    /**
+     * Removes the keys which are no longer frequent enough and computes the next expiry.
+     */
+    private void expire() {
+        nextExpiry = Long.MAX_VALUE;
+        Iterator<long[]> it = head.values().iterator();
+        while (it.hasNext()) {
+            long value = it.next()[0];
+            if (isFrequent(value)) {
+                updateNextExpiry(value);
+            } else {
+                headCount -= value;
+                it.remove();
+            }
+        }
+    }
+
+    private void updateNextExpiry(long value) {
+        long expiry = Math.max((long) (value / (double) probability), totalItems + 1);
+        if (expiry < nextExpiry) {
+            nextExpiry = expiry;
+        }
+    }
+}
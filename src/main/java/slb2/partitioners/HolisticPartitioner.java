@@ -1,18 +1,16 @@
 package slb2.partitioners;
 
-import com.google.common.collect.HashMultimap;
-import com.google.common.collect.Multimap;
-import util.cardinality.Hash;
-import util.cardinality.MurmurHash;
-import util.load.FrequencyException;
-import util.load.LossyCounting;
+import util.load.IntLossyCounting;
 
-import java.util.Collection;
-import java.util.Iterator;
+import java.util.function.IntPredicate;
 
 
 /**
  * Class for Zipf data set whose elements are numbers.
+ * <p>
+ * Keys are handled as primitive ints throughout: the frequencies are kept by {@link IntLossyCounting}
+ * and the routing table of the heavy hitters by {@link IntRoutingTable}, so nothing is boxed per tuple.
+ * As in {@link HolisticPartitionerForString}, keys dropped by lossy counting leave the routing table.
  */
 public class HolisticPartitioner extends AbstractPartitioner {
 
@@ -22,27 +20,55 @@ public class HolisticPartitioner extends AbstractPartitioner {
     private double error;  // lossy counting error
     private float epsilon;  // default = 10^-4
 
-    private Hash hash;
+    private int hashedServer;  // server of the current key by hashing
 
-    private LossyCounting<Integer> lossyCounting;
+    private IntLossyCounting lossyCounting;
 
-    private long[] localLoad;               // record downstream load
+    private LoadTracker localLoad;          // record downstream load
 
-    private Multimap<Integer, Integer> Vk;
+    private IntRoutingTable Vk;             // routing table for heavy hitters
+    private long ttlTuples;                 // evict keys of Vk unused for this many tuples, 0 to disable
+
+    private final IntPredicate droppedByLossyCounting = new IntPredicate() {
+        @Override
+        public boolean test(int key) {
+            return !lossyCounting.contains(key);
+        }
+    };
 
     public HolisticPartitioner(int numServers, float delta) {
+        this(numServers, delta, 0);
+    }
+
+    /**
+     * @param numServers
+     * @param delta frequency threshold of heavy hitters
+     * @param ttlTuples keys of the routing table which are not routed for this many tuples are evicted,
+     *                  checked every ttlTuples tuples and when lossy counting compresses, 0 to disable
+     */
+    public HolisticPartitioner(int numServers, float delta, long ttlTuples) {
+        this(numServers, delta, ttlTuples, new CumulativeLoadTracker(numServers));
+    }
+
+    /**
+     * @param numServers
+     * @param delta frequency threshold of heavy hitters
+     * @param ttlTuples keys of the routing table which are not routed for this many tuples are evicted, 0 to disable
+     * @param localLoad tracks the load of the servers
+     */
+    public HolisticPartitioner(int numServers, float delta, long ttlTuples, LoadTracker localLoad) {
         super();
+        this.ttlTuples = ttlTuples;
         this.numServers = numServers;
         this.delta = delta;
         this.error = delta * 0.1;
         this.epsilon = DEFAULT_EPSILON;
 
-        localLoad = new long[numServers];
+        this.localLoad = localLoad;
 
-        hash = MurmurHash.getInstance();
-        lossyCounting = new LossyCounting<>(error);
+        lossyCounting = new IntLossyCounting(error);
 
-        Vk = HashMultimap.create();
+        Vk = new IntRoutingTable(numServers);
     }
 
     private int x;
@@ -50,23 +76,32 @@ public class HolisticPartitioner extends AbstractPartitioner {
     private double estimatedFrequency;
 
     @Override
-    public int partition(Object key) {
+    public int partition(HashedKey hashedKey) {
         int selected;
-        x = Integer.parseInt(key.toString());   // for zipf data
+        Object key = hashedKey.getKey();
+        if (key instanceof Integer) {
+            x = (Integer) key;
+        } else {
+            x = Integer.parseInt(key.toString());   // for zipf data
+        }
+
+        add(hashedKey);
+        hashedServer = hashedKey.choice(0, numServers);   // same server for a key on every call
 
-        add(x);
+        lossyCounting.add(x);
 
-        try {
-            lossyCounting.add(x);
-        } catch (FrequencyException e) {
-            e.printStackTrace();
+        long tuples = lossyCounting.size();
+        Vk.setTime(tuples);
+        if (tuples % lossyCounting.getWindowSize() == 0      // lossy counting has just compressed
+                || (ttlTuples > 0 && tuples % ttlTuples == 0)) {
+            Vk.evict(droppedByLossyCounting, ttlTuples > 0 ? tuples - ttlTuples : 0);
         }
 
         estimatedCount = lossyCounting.estimateCount(x);
         estimatedFrequency = (double) estimatedCount / lossyCounting.size();
 
         if (estimatedFrequency <= delta) {
-            selected = hash(x);
+            selected = hashedServer;
         } else {
             float RIm = updateRegionalLoadImbalance(x);
             if (RIm <= epsilon) {
@@ -77,65 +112,38 @@ public class HolisticPartitioner extends AbstractPartitioner {
             }
         }
 
-        localLoad[selected]++;
+        localLoad.increment(selected);
 
         return selected;
     }
 
     private float updateRegionalLoadImbalance(int x) {
-        float averageLoad = (lossyCounting.size() - 1) / (float) numServers;
+        float averageLoad = localLoad.getTotalLoad() / (float) numServers;
         return averageLoad == 0 ? 0.0f : (getRegionalLoad(x) - averageLoad) / averageLoad;
     }
 
     private long getRegionalLoad(int x) {
-        Collection<Integer> values = Vk.get(x);
-        if (values.isEmpty()) {
-            return localLoad[hash(x)];
+        long regionalLoad = Vk.getAverageLoad(x, localLoad.getLoads());
+        if (regionalLoad < 0) {
+            return localLoad.getLoads()[hashedServer];
         }
-        Iterator<Integer> it = values.iterator();
-        long regionalLoad = 0;
-        while (it.hasNext()) {
-            regionalLoad += localLoad[it.next()];
-        }
-        return regionalLoad / values.size();
+        return regionalLoad;
     }
 
     private int findLeastLoadOneInV() {
-        int min = 0;
-        for (int i = 1; i < numServers; i++) {
-            if (localLoad[i] < localLoad[min]) {
-                min = i;
-            }
-        }
-        return min;
+        return localLoad.getLeastLoaded();   // O(log n) tournament tree instead of a scan of all servers
     }
 
     private int findLeastLoadOneInVk(int x) {
-        int min = -1;
-        long minOne = Integer.MAX_VALUE;
-        Collection<Integer> values = Vk.get(x);
-        if (values.isEmpty()) {
-            int hashed = hash(x);
-            Vk.put(x, hashed);
-            return hashed;
-        }
-        Iterator<Integer> it = values.iterator();
-        int i;
-        while (it.hasNext()) {
-            i = it.next();
-            if (localLoad[i] < minOne) {
-                minOne = localLoad[i];
-                min = i;
-            }
+        int min = Vk.findLeastLoaded(x, localLoad.getLoads());
+        if (min < 0) {
+            Vk.put(x, hashedServer);
+            return hashedServer;
         }
         return min;
     }
 
-    private int hash(int key) {
-        return Math.abs(hash.hash(key)) % numServers;
-    }
-
-    public Multimap<Integer, Integer> getVk() {
+    public IntRoutingTable getVk() {
         return Vk;
     }
 
@@ -145,4 +153,3 @@ public class HolisticPartitioner extends AbstractPartitioner {
     }
 
 }
-
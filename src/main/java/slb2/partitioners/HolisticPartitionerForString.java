@@ -1,72 +1,120 @@
 package slb2.partitioners;
 
+import java.util.function.Predicate;
 
-import com.google.common.collect.HashMultimap;
-import com.google.common.collect.Multimap;
-import util.cardinality.Hash;
-import util.cardinality.MurmurHash;
-import util.load.FrequencyException;
-import util.load.LossyCounting;
-
-import java.util.Collection;
-import java.util.Iterator;
 
 /**
  * Class for data set whose elements are strings.
+ * <p>
+ * The routing table only holds live heavy hitters: whenever lossy counting compresses, the keys it dropped,
+ * and optionally the keys not routed for a number of tuples, are evicted from the routing table.
+ * <p>
+ * The heavy hitters are the head of a {@link HeadDetector} whose probability is delta, lossy counting by default.
+ * With another detector, the routing table is swept at the same period, dropping the keys the detector no longer counts.
  */
 
 public class HolisticPartitionerForString extends AbstractPartitioner {
 
     private static final float DEFAULT_BETA = 0.01f;
-    private static final float DEFAULT_DELTA = 0.000001f; // 10^-6
+    public static final float DEFAULT_DELTA = 0.000001f; // 10^-6
     private int numServers;
     private float delta;
     private double error;  // lossy counting error
     private float beta;  // default = 0.01f
 
-    private Hash hash;
+    private int hashedServer;               // server of the current key by hashing
+
+    private HeadDetector heavyHitters;      // keys whose frequency is above delta
+    private int sweepTuples;                // period of the sweeps of Vk, the window of lossy counting
 
-    private LossyCounting<Object> lossyCounting;
+    private LoadTracker localLoad;          // record downstream load
+    private RoutingTable Vk;                // routing table for heavy hitters
+    private long ttlTuples;                 // evict keys of Vk unused for this many tuples, 0 to disable
 
-    private long[] localLoad;               // record downstream load
-    private Multimap<Object, Integer> Vk;   // routing table for heavy hitters
+    private final Predicate<Object> droppedByLossyCounting = new Predicate<Object>() {
+        @Override
+        public boolean test(Object key) {
+            return !heavyHitters.contains(key.toString());
+        }
+    };
 
     public HolisticPartitionerForString(int numServers) {
+        this(numServers, 0);
+    }
+
+    /**
+     * @param numServers
+     * @param ttlTuples keys of the routing table which are not routed for this many tuples are evicted,
+     *                  checked every ttlTuples tuples and when lossy counting compresses, 0 to disable
+     */
+    public HolisticPartitionerForString(int numServers, long ttlTuples) {
+        this(numServers, ttlTuples, new HeadDetectorFactory(HeadDetectorFactory.LOSSY_COUNTING));
+    }
+
+    /**
+     * @param numServers
+     * @param ttlTuples keys of the routing table which are not routed for this many tuples are evicted, 0 to disable
+     * @param detectors creates the detector of the heavy hitters
+     */
+    public HolisticPartitionerForString(int numServers, long ttlTuples, HeadDetectorFactory detectors) {
+        this(numServers, ttlTuples, detectors, new CumulativeLoadTracker(numServers));
+    }
+
+    /**
+     * @param numServers
+     * @param ttlTuples keys of the routing table which are not routed for this many tuples are evicted, 0 to disable
+     * @param detectors creates the detector of the heavy hitters
+     * @param localLoad tracks the load of the servers
+     */
+    public HolisticPartitionerForString(int numServers, long ttlTuples, HeadDetectorFactory detectors,
+                                        LoadTracker localLoad) {
+        this(numServers, DEFAULT_DELTA, ttlTuples, detectors, localLoad);
+    }
+
+    /**
+     * @param numServers
+     * @param delta frequency threshold of heavy hitters
+     * @param ttlTuples keys of the routing table which are not routed for this many tuples are evicted, 0 to disable
+     * @param detectors creates the detector of the heavy hitters
+     * @param localLoad tracks the load of the servers
+     * @throws IllegalArgumentException if the detectors cannot bound their error for delta
+     */
+    public HolisticPartitionerForString(int numServers, float delta, long ttlTuples, HeadDetectorFactory detectors,
+                                        LoadTracker localLoad) {
         super();
+        this.ttlTuples = ttlTuples;
         this.numServers = numServers;
-        this.delta = DEFAULT_DELTA;
+        this.delta = delta;
         this.error = delta * 0.1;
         this.beta = DEFAULT_BETA;
 
-        localLoad = new long[numServers];
+        this.localLoad = localLoad;
 
-        hash = MurmurHash.getInstance();
-        lossyCounting = new LossyCounting<>(error);
+        heavyHitters = detectors.create(delta);
+        sweepTuples = (int) Math.ceil(1 / error);
 
-        Vk = HashMultimap.create();
+        Vk = new RoutingTable(numServers);
     }
 
-    private long estimatedCount;
-    private double estimatedFrequency;
-
     @Override
-    public int partition(Object key) {
+    public int partition(HashedKey hashedKey) {
         int selected;
+        Object key = hashedKey.getKey();
 
-        add(key);
+        add(hashedKey);
+        hashedServer = hashedKey.choice(0, numServers);   // same server for a key on every call
 
-        try {
-            lossyCounting.add(key);
-        } catch (FrequencyException e) {
-            e.printStackTrace();
-        }
-
-        estimatedCount = lossyCounting.estimateCount(key);
+        boolean heavy = heavyHitters.offerAndCheck(key.toString());
 
-        estimatedFrequency = (float) estimatedCount / lossyCounting.size();
+        long tuples = heavyHitters.getTotalItems();
+        Vk.setTime(tuples);
+        if (tuples % sweepTuples == 0      // lossy counting has just compressed
+                || (ttlTuples > 0 && tuples % ttlTuples == 0)) {
+            Vk.evict(droppedByLossyCounting, ttlTuples > 0 ? tuples - ttlTuples : 0);
+        }
 
-        if (estimatedFrequency <= delta) {
-            selected = hash(key);
+        if (!heavy) {
+            selected = hashedServer;
         } else {
             float RIm = updateRegionalLoadImbalance(key);
             if (RIm <= beta) {
@@ -77,70 +125,43 @@ public class HolisticPartitionerForString extends AbstractPartitioner {
             }
         }
 
-        localLoad[selected]++;
+        localLoad.increment(selected);
 
         return selected;
     }
 
     private float updateRegionalLoadImbalance(Object x) {
-        float averageLoad = (lossyCounting.size() - 1) / (float) numServers;
+        float averageLoad = localLoad.getTotalLoad() / (float) numServers;
         return averageLoad == 0 ? 0.0f : (getRegionalLoad(x) - averageLoad) / averageLoad;
     }
 
     private long getRegionalLoad(Object x) {
-        Collection<Integer> values = Vk.get(x);
-        if (values.isEmpty()) {
-            return localLoad[hash(x)];
+        long regionalLoad = Vk.getAverageLoad(x, localLoad.getLoads());
+        if (regionalLoad < 0) {
+            return localLoad.getLoads()[hashedServer];
         }
-        Iterator<Integer> it = values.iterator();
-        long regionalLoad = 0;
-        while (it.hasNext()) {
-            regionalLoad += localLoad[it.next()];
-        }
-        return regionalLoad / values.size();
+        return regionalLoad;
     }
 
     private int findLeastLoadOneInV() {
-        int min = 0;
-        for (int i = 1; i < numServers; i++) {
-            if (localLoad[i] < localLoad[min]) {
-                min = i;
-            }
-        }
-        return min;
+        return localLoad.getLeastLoaded();   // O(log n) tournament tree instead of a scan of all servers
     }
 
     private int findLeastLoadOneInVk(Object x) {
-        int min = -1;
-        long minOne = Integer.MAX_VALUE;
-        Collection<Integer> values = Vk.get(x);
-        if (values.isEmpty()) {
-            int hashed = hash(x);
-            Vk.put(x, hashed);
-            return hashed;
-        }
-        Iterator<Integer> it = values.iterator();
-        int i;
-        while (it.hasNext()) {
-            i = it.next();
-            if (localLoad[i] < minOne) {
-                minOne = localLoad[i];
-                min = i;
-            }
+        int min = Vk.findLeastLoaded(x, localLoad.getLoads());
+        if (min < 0) {
+            Vk.put(x, hashedServer);
+            return hashedServer;
         }
         return min;
     }
 
-    private int hash(Object key) {
-        return Math.abs(hash.hash(key)) % numServers;
-    }
-
     @Override
     public String getName() {
         return "Holistic";
     }
 
-    public Multimap<Object, Integer> getVk() {
+    public RoutingTable getVk() {
         return Vk;
     }
 }
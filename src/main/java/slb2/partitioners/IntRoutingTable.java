@@ -0,0 +1,106 @@
+package slb2.partitioners;
+
+import util.cardinality.MurmurHash3;
+
+import java.util.function.IntPredicate;
+
+/**
+ * Routing table from int keys to sets of servers, for {@link HolisticPartitioner}.
+ * <p>
+ * Same as {@link RoutingTable}, but the keys are kept in an int array, so nothing is boxed.
+ * {@link #evict(IntPredicate, long)} drops the keys which are no longer heavy or have not been used for a while.
+ */
+public class IntRoutingTable extends AbstractRoutingTable<int[]> {
+
+    public IntRoutingTable(int numServers) {
+        super(numServers);
+    }
+
+    /**
+     * Adds the server to the servers of the key.
+     * @param key
+     * @param server
+     */
+    public void put(int key, int server) {
+        int slot = find(key);
+        keys[slot] = key;
+        addServer(slot, server);
+    }
+
+    /**
+     * Removes the keys which are expired or were last looked up before the given time.
+     * @param expired tells whether a key is no longer needed, e.g., it left the frequency summary
+     * @param minLastUsed keys whose last lookup is before this time are removed too, 0 to keep them
+     * @return number of keys removed
+     */
+    public int evict(final IntPredicate expired, long minLastUsed) {
+        return evictSlots(new IntPredicate() {
+            @Override
+            public boolean test(int slot) {
+                return expired.test(keys[slot]);
+            }
+        }, minLastUsed);
+    }
+
+    public boolean contains(int key) {
+        return !isFree(find(key));
+    }
+
+    /**
+     * @param key
+     * @return number of servers of the key, 0 if the key is not in the table
+     */
+    public int getServerCount(int key) {
+        return countServers(find(key));
+    }
+
+    /**
+     * @param key
+     * @param load load of every server
+     * @return server of the key with the least load, the lowest one on ties, or -1 if the key is not in the table
+     */
+    public int findLeastLoaded(int key, long[] load) {
+        return findLeastLoadedServer(find(key), load);
+    }
+
+    /**
+     * @param key
+     * @param load load of every server
+     * @return average load over the servers of the key, or -1 if the key is not in the table
+     */
+    public long getAverageLoad(int key, long[] load) {
+        return getAverageServerLoad(find(key), load);
+    }
+
+    private int find(int key) {
+        int slot = homeSlot(MurmurHash3.fmix32(key));
+        while (!isFree(slot) && keys[slot] != key) {
+            slot = nextSlot(slot);
+        }
+        return slot;
+    }
+
+    @Override
+    protected int[] newKeys(int capacity) {
+        return new int[capacity];
+    }
+
+    @Override
+    protected int hash(int[] keys, int slot) {
+        return MurmurHash3.fmix32(keys[slot]);
+    }
+
+    @Override
+    protected void copyKey(int[] from, int fromSlot, int[] to, int toSlot) {
+        to[toSlot] = from[fromSlot];
+    }
+
+    @Override
+    protected void clearKey(int slot) {
+    }
+
+    @Override
+    protected int getKeyBytes() {
+        return Integer.BYTES;
+    }
+}
@@ -0,0 +1,34 @@
+package slb2.partitioners;
+
+/**
+ * Local estimate of the load of the downstream servers, i.e., of the tuples an upstream operator sent them.
+ * <p>
+ * {@link CumulativeLoadTracker} counts from the start of the stream. {@link DecayingLoadTracker} forgets old
+ * tuples, so that the choices follow the recent load: a server which was idle for a long time does not look
+ * empty and is not flooded.
+ */
+public interface LoadTracker {
+
+    /**
+     * Accounts one tuple sent to the server.
+     * @param server
+     */
+    void increment(int server);
+
+    /**
+     * @return load of every server, indexed by server. The array is live: it must not be modified.
+     */
+    long[] getLoads();
+
+    /**
+     * @return sum of the loads of all servers
+     */
+    long getTotalLoad();
+
+    /**
+     * The first call builds a {@link MinLoadTree}, which the following increments keep up to date,
+     * so that partitioners which never ask do not pay for it.
+     * @return the least loaded server, the lowest one on ties
+     */
+    int getLeastLoaded();
+}
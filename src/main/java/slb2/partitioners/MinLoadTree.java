@@ -0,0 +1,65 @@
+package slb2.partitioners;
+
+/**
+ * Tournament tree over the loads of the servers: every inner node holds the less loaded server of its two
+ * children, the lower one on ties, so the root is the least loaded server. A change of one load replays
+ * the matches on the path of its server only, in O(log n).
+ */
+public class MinLoadTree {
+
+    private final long[] load;   // the loads, owned by the caller
+    private final int leaves;    // number of leaves, a power of two
+    private final int[] winner;  // winner[1] is the root, the leaves start at index leaves; -1 for no server
+
+    /**
+     * @param load load of every server, which the tree reads; call {@link #update(int)} after changing one
+     */
+    public MinLoadTree(long[] load) {
+        this.load = load;
+        int n = 1;
+        while (n < load.length) {
+            n <<= 1;
+        }
+        this.leaves = n;
+        this.winner = new int[2 * n];
+        rebuild();
+    }
+
+    /**
+     * @return the least loaded server, the lowest one on ties
+     */
+    public int getLeastLoaded() {
+        return winner[1];
+    }
+
+    /**
+     * Replays the matches of the server, after its load changed.
+     * @param server
+     */
+    public void update(int server) {
+        int node = (leaves + server) >> 1;
+        while (node > 0) {
+            winner[node] = match(winner[2 * node], winner[2 * node + 1]);
+            node >>= 1;
+        }
+    }
+
+    /**
+     * Replays all matches, after many loads changed.
+     */
+    public void rebuild() {
+        for (int i = 0; i < leaves; i++) {
+            winner[leaves + i] = i < load.length ? i : -1;
+        }
+        for (int node = leaves - 1; node > 0; node--) {
+            winner[node] = match(winner[2 * node], winner[2 * node + 1]);
+        }
+    }
+
+    private int match(int left, int right) {
+        if (right < 0) {
+            return left;
+        }
+        return load[left] <= load[right] ? left : right;   // left is the lower server
+    }
+}
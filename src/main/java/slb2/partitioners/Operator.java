@@ -1,51 +1,139 @@
 package slb2.partitioners;
 
+import com.clearspring.analytics.stream.cardinality.CardinalityMergeException;
 import util.cardinality.HyperLogLogPlus;
+import util.cardinality.IRichCardinality;
+
+import java.util.concurrent.atomic.LongAdder;
 
 public class Operator implements ILoad {
 
     private StreamPartitioner partitioner;   // core of upstream operators
     private Operator[] downstreamOperators;  // for upstream operators to have references of downstream operators
+    private HashedKey hashedKey;             // for upstream operators, the key of the current tuple and its hash
 
-    private long elementCount;        // for downstream operators to get load statistics
-    private HyperLogLogPlus hyperLogLog;  // for other algorithm to get cardinality statistics
-    private final int DEFAULT_LOG2M = 24;
+    private LongAdder elementCount;       // for downstream operators to get load statistics, striped for concurrent sources
+    private IRichCardinality hyperLogLog;  // for other algorithm to get cardinality statistics
+    private static final int DEFAULT_LOG2M = 24;
 
     public Operator() {  // for downstream operators
-        elementCount = 0;
-        hyperLogLog = new HyperLogLogPlus(DEFAULT_LOG2M);
+        this(new HyperLogLogPlus(DEFAULT_LOG2M));
+    }
+
+    /**
+     * For downstream operators counting their distinct keys with the given counter, see {@link CardinalityFactory}.
+     * @param cardinality
+     */
+    public Operator(IRichCardinality cardinality) {  // for downstream operators
+        elementCount = new LongAdder();
+        hyperLogLog = cardinality;
     }
 
     public Operator(StreamPartitioner partitioner, Operator[] downstreamOperators) {  // for upstream operators
         this.partitioner = partitioner;
         this.downstreamOperators = downstreamOperators;
+        this.hashedKey = new HashedKey();
     }
 
+    /**
+     * Hashes the key once: the partitioner and the downstream operator both use this hash.
+     * @param key
+     */
     public void processElement(Object key)  {  // for upstream operators
         // process element, then partition it
+        hashedKey.set(key);
         int selected = 0;
         try {
-            selected = partitioner.partition(key);
+            selected = partitioner.partition(hashedKey);
         }catch (Exception e) {
             e.printStackTrace();
         }
 
-        downstreamOperators[selected].receiveElement(key);
+        downstreamOperators[selected].receiveElement(hashedKey);
+    }
+
+    /**
+     * @return for upstream operators, the key of the last tuple processed and its hash, overwritten by the next one
+     */
+    public HashedKey getHashedKey() {
+        return hashedKey;
     }
 
+    /**
+     * Thread-safe, so that upstream operators running on their own threads can share downstream operators.
+     * Only the register update of the sketch is serialized.
+     * @param key
+     */
+    public void receiveElement(HashedKey key) {  // for downstream operators
+        elementCount.increment();
+        long hashed = key.getHash1();
+        synchronized (hyperLogLog) {
+            hyperLogLog.offerHashed(hashed);
+        }
+    }
+
+    /**
+     * Same as {@link #receiveElement(HashedKey)} for a key which is not hashed yet.
+     * @param key
+     */
     public void receiveElement(Object key) {  // for downstream operators
-        elementCount++;
-        hyperLogLog.offer(key);
+        receiveElement(new HashedKey().set(key));
     }
 
     @Override
     public long getLoad() {
-        return elementCount;
+        return elementCount.sum();
     }
 
     @Override
     public long getCardinality() {
-        return hyperLogLog.cardinality();
+        synchronized (hyperLogLog) {
+            return hyperLogLog.cardinality();
+        }
     }
-}
 
+    /**
+     * Number of distinct keys received by a group of downstream operators, e.g., all of them, which is the number
+     * of distinct keys of the stream. The counters are merged, so a key received by several operators is counted
+     * only once. Meant for reports, not to be called while the operators receive tuples.
+     * @param operators downstream operators whose counters are of the same kind
+     * @return
+     * @throws CardinalityMergeException
+     */
+    public static long getTotalCardinality(Operator[] operators) throws CardinalityMergeException {
+        if (operators.length == 1) {
+            return operators[0].getCardinality();
+        }
+        IRichCardinality[] others = new IRichCardinality[operators.length - 1];
+        for (int i = 1; i < operators.length; i++) {
+            others[i - 1] = operators[i].hyperLogLog;
+        }
+        return operators[0].hyperLogLog.merge(others).cardinality();
+    }
+
+    /**
+     * @return estimated bytes held by the distinct key counter of a downstream operator
+     */
+    public long getMemoryFootprint() {
+        synchronized (hyperLogLog) {
+            return hyperLogLog.getMemoryFootprint();
+        }
+    }
+
+    /**
+     * Prints the memory held by the distinct key counters of a group of downstream operators.
+     * @param operators downstream operators
+     * @param cardinalityFactory factory of their counters, for the description of the counters
+     */
+    public static void printMemoryFootprint(Operator[] operators, CardinalityFactory cardinalityFactory) {
+        long totalBytes = 0;
+        long maxBytes = 0;
+        for (Operator operator : operators) {
+            long bytes = operator.getMemoryFootprint();
+            totalBytes += bytes;
+            maxBytes = Math.max(maxBytes, bytes);
+        }
+        System.out.println("Cardinality counters (" + cardinalityFactory.getDescription() + "): "
+                + totalBytes / operators.length + " bytes per server on average, " + maxBytes + " at most");
+    }
+}
@@ -1,8 +0,0 @@
-package slb2.partitioners;
-
-public class PHeadCount {
-
-    double probability;
-
-    int numberOfElements;
-}
@@ -1,49 +1,47 @@
 package slb2.partitioners;
 
-import com.google.common.hash.HashFunction;
-import com.google.common.hash.Hashing;
-
 public class PKG_Partitioner extends AbstractPartitioner {
 
     private int numServers;
-    private long[] localLoad;
-
-    private Seed seed;
-    private HashFunction[] hashes;
+    private LoadTracker localLoad;
 
 //    private Hash[] hashes;
     private int CHOICES = 2;
 
     public PKG_Partitioner(int numServers) {
+        this(numServers, new CumulativeLoadTracker(numServers));
+    }
+
+    /**
+     * @param numServers
+     * @param localLoad tracks the load of the servers
+     */
+    public PKG_Partitioner(int numServers, LoadTracker localLoad) {
         super();
         this.numServers = numServers;
-        localLoad = new long[numServers];
-        seed = new Seed(numServers);
-        hashes = new HashFunction[CHOICES];
+        this.localLoad = localLoad;
 
 //        hashes = new Hash[CHOICES];
 //        hashes[0] = MurmurHash.getInstance();
 //        hashes[1] = MurmurHash.getInstance();
-
-        hashes[0] = Hashing.murmur3_128(seed.getSeed(0));
-        hashes[1] = Hashing.murmur3_128(seed.getSeed(1));
     }
 
     private int[] selected = new int[CHOICES];
 
     @Override
-    public int partition(Object key) {
+    public int partition(HashedKey key) {
         add(key);
-        selected[0] = Math.abs(hashes[0].hashBytes(key.toString().getBytes()).asInt() % numServers);
-        selected[1] = Math.abs(hashes[1].hashBytes(key.toString().getBytes()).asInt() % numServers);
+        selected[0] = key.choice(0, numServers);
+        selected[1] = key.choice(1, numServers);
 //        selected[0] = Math.abs(hashes[0].hash(key) % numServers);
 //        selected[1] = Math.abs(hashes[0].hash(key) % numServers);
         return chooseMinLoad();
     }
 
     private int chooseMinLoad() {
-        int chosen = localLoad[selected[0]] < localLoad[selected[1]] ? selected[0] : selected[1];
-        localLoad[chosen]++;
+        long[] load = localLoad.getLoads();
+        int chosen = load[selected[0]] < load[selected[1]] ? selected[0] : selected[1];
+        localLoad.increment(chosen);
         return chosen;
     }
 
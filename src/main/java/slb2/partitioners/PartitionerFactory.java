@@ -0,0 +1,146 @@
+package slb2.partitioners;
+
+/**
+ * Creates partitioners of one simulator type, so that every upstream operator can own a fresh instance.
+ */
+public class PartitionerFactory {
+
+    private final int simulatorType;
+    private final int numServers;
+    private final int threshold;   // frequency threshold of Head
+    private final float delta;     // frequency threshold of heavy hitters, for the holistic partitioners
+    private final HeadDetectorFactory detectors;   // null for the default detector of every partitioner
+    private final long loadHalfLife;               // half-life of the local loads in tuples, 0 for cumulative loads
+
+    private static final float DEFAULT_DELTA = 0.0001f;
+
+    public PartitionerFactory(int simulatorType, int numServers, int threshold) {
+        this(simulatorType, numServers, threshold, DEFAULT_DELTA);
+    }
+
+    public PartitionerFactory(int simulatorType, int numServers, int threshold, float delta) {
+        this(simulatorType, numServers, threshold, delta, (HeadDetectorFactory) null);
+    }
+
+    /**
+     * @param simulatorType
+     * @param numServers
+     * @param threshold frequency threshold of Head
+     * @param delta frequency threshold of heavy hitters, for the holistic partitioners
+     * @param detector name of the head detector, see {@link HeadDetectorFactory}, or null for the default one;
+     *                 the holistic partitioner of ints always uses its own lossy counting of ints
+     */
+    public PartitionerFactory(int simulatorType, int numServers, int threshold, float delta, String detector) {
+        this(simulatorType, numServers, threshold, delta, detector == null ? null : new HeadDetectorFactory(detector));
+    }
+
+    /**
+     * @param simulatorType
+     * @param numServers
+     * @param threshold frequency threshold of Head
+     * @param delta frequency threshold of heavy hitters, for the holistic partitioners
+     * @param detectors creates the head detectors, or null for the default one of every partitioner
+     */
+    public PartitionerFactory(int simulatorType, int numServers, int threshold, float delta,
+                              HeadDetectorFactory detectors) {
+        this(simulatorType, numServers, threshold, delta, detectors, 0);
+    }
+
+    /**
+     * @param simulatorType
+     * @param numServers
+     * @param threshold frequency threshold of Head
+     * @param delta frequency threshold of heavy hitters, for the holistic partitioners
+     * @param detectors creates the head detectors, or null for the default one of every partitioner
+     * @param loadHalfLife half-life of the local loads in tuples, 0 to count them from the start of the stream
+     * @throws IllegalArgumentException if the head detector of the holistic partitioner cannot bound its error
+     * for delta
+     */
+    public PartitionerFactory(int simulatorType, int numServers, int threshold, float delta,
+                              HeadDetectorFactory detectors, long loadHalfLife) {
+        if (simulatorType < 1 || simulatorType > 8) {
+            throw new IllegalArgumentException("Unknown simulator type: " + simulatorType);
+        }
+        if (simulatorType == 7) {
+            getDetectors(detectors, HeadDetectorFactory.LOSSY_COUNTING).checkProbability(delta);
+        }
+        this.simulatorType = simulatorType;
+        this.numServers = numServers;
+        this.threshold = threshold;
+        this.delta = delta;
+        this.detectors = detectors;
+        this.loadHalfLife = loadHalfLife;
+    }
+
+    public AbstractPartitioner create() {
+        switch (simulatorType) {
+            case 1:
+                return new HashPartitioner(numServers);
+            case 2:
+                return new PKG_Partitioner(numServers, createLoadTracker());
+            case 3:
+                return new DChoices_Partitioner(numServers, threshold,
+                        getDetectors(HeadDetectorFactory.SPACE_SAVING), createLoadTracker());
+            case 4:
+                return new WChoices_Partitioner(numServers, threshold,
+                        getDetectors(HeadDetectorFactory.SPACE_SAVING), createLoadTracker());
+            case 5:
+                return new RR_Partitioner(numServers, threshold,
+                        getDetectors(HeadDetectorFactory.SPACE_SAVING), createLoadTracker());
+            case 6:
+                return new SG_Partitioner(numServers);
+            case 8:
+                return new HolisticPartitioner(numServers, delta, 0, createLoadTracker());   // zipf data, whose keys are ints
+            default:
+                return new HolisticPartitionerForString(numServers, delta, 0,
+                        getDetectors(HeadDetectorFactory.LOSSY_COUNTING), createLoadTracker());
+        }
+    }
+
+    private HeadDetectorFactory getDetectors(String defaultName) {
+        return getDetectors(detectors, defaultName);
+    }
+
+    private static HeadDetectorFactory getDetectors(HeadDetectorFactory detectors, String defaultName) {
+        return detectors == null ? new HeadDetectorFactory(defaultName) : detectors;
+    }
+
+    private LoadTracker createLoadTracker() {
+        return loadHalfLife > 0 ? new DecayingLoadTracker(numServers, loadHalfLife) : new CumulativeLoadTracker(numServers);
+    }
+
+    /**
+     * @return short name used in the output file name
+     */
+    public String getOutputFileName() {
+        String name = getPartitionerName();
+        if (detectors != null && simulatorType != 1 && simulatorType != 2 && simulatorType != 6 && simulatorType != 8) {
+            name += "_" + detectors.getName();
+        }
+        if (loadHalfLife > 0 && simulatorType != 1 && simulatorType != 6) {
+            name += "_load-decay";
+        }
+        return name;
+    }
+
+    private String getPartitionerName() {
+        switch (simulatorType) {
+            case 1:
+                return "hash";
+            case 2:
+                return "pkg";
+            case 3:
+                return "d-choices";
+            case 4:
+                return "w-choices";
+            case 5:
+                return "RR";
+            case 6:
+                return "shuffle";
+            case 8:
+                return "holistic-int";
+            default:
+                return "holistic";
+        }
+    }
+}
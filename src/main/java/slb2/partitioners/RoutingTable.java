@@ -0,0 +1,112 @@
+package slb2.partitioners;
+
+import util.cardinality.MurmurHash3;
+
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+/**
+ * Routing table from keys to sets of servers, for {@link HolisticPartitionerForString}.
+ * <p>
+ * The keys are kept in an Object array, see {@link AbstractRoutingTable} for the table and the server sets.
+ * {@link #evict(Predicate, long)} drops the keys which are no longer heavy or have not been used for a while.
+ */
+public class RoutingTable extends AbstractRoutingTable<Object[]> {
+
+    private static final int REFERENCE_BYTES = 4;     // compressed oops
+
+    public RoutingTable(int numServers) {
+        super(numServers);
+    }
+
+    /**
+     * Adds the server to the servers of the key.
+     * @param key
+     * @param server
+     */
+    public void put(Object key, int server) {
+        int slot = find(key);
+        if (isFree(slot)) {
+            keys[slot] = key;
+        }
+        addServer(slot, server);
+    }
+
+    /**
+     * Removes the keys which are expired or were last looked up before the given time.
+     * @param expired tells whether a key is no longer needed, e.g., it left the frequency summary
+     * @param minLastUsed keys whose last lookup is before this time are removed too, 0 to keep them
+     * @return number of keys removed
+     */
+    public int evict(final Predicate<Object> expired, long minLastUsed) {
+        return evictSlots(new IntPredicate() {
+            @Override
+            public boolean test(int slot) {
+                return expired.test(keys[slot]);
+            }
+        }, minLastUsed);
+    }
+
+    public boolean contains(Object key) {
+        return !isFree(find(key));
+    }
+
+    /**
+     * @param key
+     * @return number of servers of the key, 0 if the key is not in the table
+     */
+    public int getServerCount(Object key) {
+        return countServers(find(key));
+    }
+
+    /**
+     * @param key
+     * @param load load of every server
+     * @return server of the key with the least load, the lowest one on ties, or -1 if the key is not in the table
+     */
+    public int findLeastLoaded(Object key, long[] load) {
+        return findLeastLoadedServer(find(key), load);
+    }
+
+    /**
+     * @param key
+     * @param load load of every server
+     * @return average load over the servers of the key, or -1 if the key is not in the table
+     */
+    public long getAverageLoad(Object key, long[] load) {
+        return getAverageServerLoad(find(key), load);
+    }
+
+    private int find(Object key) {
+        int slot = homeSlot(MurmurHash3.fmix32(key.hashCode()));
+        while (!isFree(slot) && !keys[slot].equals(key)) {
+            slot = nextSlot(slot);
+        }
+        return slot;
+    }
+
+    @Override
+    protected Object[] newKeys(int capacity) {
+        return new Object[capacity];
+    }
+
+    @Override
+    protected int hash(Object[] keys, int slot) {
+        return MurmurHash3.fmix32(keys[slot].hashCode());
+    }
+
+    @Override
+    protected void copyKey(Object[] from, int fromSlot, Object[] to, int toSlot) {
+        to[toSlot] = from[fromSlot];
+    }
+
+    @Override
+    protected void clearKey(int slot) {
+        keys[slot] = null;
+    }
+
+    @Override
+    protected int getKeyBytes() {
+        return REFERENCE_BYTES;
+    }
+}
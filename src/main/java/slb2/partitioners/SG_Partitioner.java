@@ -14,7 +14,7 @@ public class SG_Partitioner extends AbstractPartitioner {
     }
 
     @Override
-    public int partition(Object key) throws Exception {  // round-robin for all keys
+    public int partition(HashedKey key) throws Exception {  // round-robin for all keys
         add(key);
         return ++nextIndex % numServers;
     }
@@ -9,6 +9,14 @@ public interface StreamPartitioner {
      */
     int partition(Object key) throws Exception;
 
+    /**
+     * Same as {@link #partition(Object)} for a key whose hash is already computed, e.g., by the upstream operator,
+     * so that the key is hashed once per tuple.
+     * @param key
+     * @return index of selected downstream operator.
+     */
+    int partition(HashedKey key) throws Exception;
+
     /**
      *
      * @return
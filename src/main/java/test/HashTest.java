@@ -1,29 +1,62 @@
 package test;
 
-import com.google.common.hash.HashFunction;
-import com.google.common.hash.Hashing;
+import slb2.partitioners.HashedKey;
+import util.cardinality.Hash;
 import util.cardinality.MurmurHash;
 
+/**
+ * Checks that routing by hash sends a key to the same server on every call, and times the hashes.
+ * Keys are routed as the partitioners do, with {@link HashedKey}; the time-seeded hash(byte[]) is shown
+ * for comparison.
+ */
 public class HashTest {
 
+    private static final int NUM_KEYS = 1000000;
+    private static final int ROUNDS = 5;
+    private static final int NUM_SERVERS = 16;
 
     public static void main(String[] args) {
+        Hash hash = MurmurHash.getInstance();
+        HashedKey hashedKey = new HashedKey();
 
-//        HashFunction hash_1 = Hashing.murmur3_128(13);
-////        HashFunction hash_2 = Hashing.murmur3_128(13);
-//
-//        String key = "hello, world.....aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa";
-//
-//        int numServers = 10;
-//
-//        int x = hash_1.hashBytes(key.getBytes()).asInt() % numServers;
-//        int y = hash_1.hashBytes(key.getBytes()).asInt() % numServers;
-//        System.out.print(x + "  " + y);
-
-        int z = Integer.parseInt("1");
-
-        int x1 = MurmurHash.getInstance().hash(Integer.parseInt("222222"));
-        int x2 = MurmurHash.getInstance().hash(Integer.parseInt("222222"));
+        String[] keys = new String[NUM_KEYS];
+        for (int i = 0; i < NUM_KEYS; i++) {
+            keys[i] = "key-" + i;
+        }
+
+        int[] servers = new int[NUM_KEYS];
+        int moved = 0;
+        long start = System.nanoTime();
+        for (int round = 0; round < ROUNDS; round++) {
+            for (int i = 0; i < NUM_KEYS; i++) {
+                int server = hashedKey.set(keys[i]).choice(0, NUM_SERVERS);
+                if (round > 0 && server != servers[i]) {
+                    moved++;
+                }
+                servers[i] = server;
+            }
+        }
+        long stableTime = System.nanoTime() - start;
+        System.out.println("HashedKey.choice(0): " + moved + " moved keys, "
+                + stableTime / (ROUNDS * (double) NUM_KEYS) + " ns/key");
+
+        moved = 0;
+        start = System.nanoTime();
+        for (int round = 0; round < ROUNDS; round++) {
+            for (int i = 0; i < NUM_KEYS; i++) {
+                int server = (hash.hash(keys[i].getBytes()) & Integer.MAX_VALUE) % NUM_SERVERS;
+                if (round > 0 && server != servers[i]) {
+                    moved++;
+                }
+                servers[i] = server;
+            }
+        }
+        long seededTime = System.nanoTime() - start;
+        System.out.println("hash(byte[]) seeded by time: " + moved + " moved keys, "
+                + seededTime / (ROUNDS * (double) NUM_KEYS) + " ns/key");
+
+        int x1 = hash.hash(Integer.parseInt("222222"));
+        int x2 = hash.hash(Integer.parseInt("222222"));
         System.out.println(x1 + "  " + x2);
     }
 }
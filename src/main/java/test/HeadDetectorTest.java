@@ -0,0 +1,94 @@
+package test;
+
+import slb2.partitioners.AbstractPartitioner;
+import slb2.partitioners.HeadDetectorFactory;
+import slb2.partitioners.PartitionerFactory;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Compares the head detectors: every skew-aware partitioner routes the same Zipf stream once per detector,
+ * and the routing time and the load imbalance are printed.
+ * <p>
+ * Arguments, all optional: numServers numTuples z numKeys
+ */
+public class HeadDetectorTest {
+
+    private static final int[] SIMULATOR_TYPES = {3, 4, 5, 7};   // D-Choices, W-Choices, RR, Holistic
+    private static final int THRESHOLD = 5;                      // frequency threshold of Head
+    private static final float DELTA = 0.0001f;                  // frequency threshold of heavy hitters of Holistic
+
+    public static void main(String[] args) throws Exception {
+        int numServers = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int numTuples = args.length > 1 ? Integer.parseInt(args[1]) : 2000000;
+        double z = args.length > 2 ? Double.parseDouble(args[2]) : 1.0;
+        int numKeys = args.length > 3 ? Integer.parseInt(args[3]) : 100000;
+
+        String[] stream = zipfStream(numTuples, z, numKeys, new Random(42));
+        System.out.println(numTuples + " tuples, zipf z = " + z + ", " + numKeys + " keys, " + numServers + " servers");
+        System.out.println();
+
+        for (int simulatorType : SIMULATOR_TYPES) {
+            for (String detector : HeadDetectorFactory.getNames()) {
+                PartitionerFactory factory;
+                try {
+                    factory = new PartitionerFactory(simulatorType, numServers, THRESHOLD, DELTA, detector);
+                } catch (IllegalArgumentException e) {   // the detector cannot bound its error for delta
+                    System.out.printf("type %-7d %-16s skipped: %s%n", simulatorType, detector, e.getMessage());
+                    continue;
+                }
+                run(factory, stream, numServers);   // warm up
+                AbstractPartitioner partitioner = factory.create();
+                long[] load = new long[numServers];
+                long start = System.nanoTime();
+                for (String key : stream) {
+                    load[partitioner.partition(key)]++;
+                }
+                long time = System.nanoTime() - start;
+                System.out.printf("%-12s %-16s %8.1f ns/tuple   load imbalance %.6f%n", partitioner.getName(), detector,
+                        time / (double) numTuples, imbalance(load, numTuples));
+            }
+            System.out.println();
+        }
+    }
+
+    private static void run(PartitionerFactory factory, String[] stream, int numServers) throws Exception {
+        AbstractPartitioner partitioner = factory.create();
+        for (int i = 0; i < stream.length / 4; i++) {
+            partitioner.partition(stream[i]);
+        }
+    }
+
+    /**
+     * @return (max load - average load) / average load
+     */
+    private static double imbalance(long[] load, long tuples) {
+        long maxLoad = 0;
+        for (long l : load) {
+            maxLoad = Math.max(maxLoad, l);
+        }
+        double averageLoad = tuples / (double) load.length;
+        return (maxLoad - averageLoad) / averageLoad;
+    }
+
+    private static String[] zipfStream(int numTuples, double z, int numKeys, Random random) {
+        double[] cdf = new double[numKeys];
+        double sum = 0;
+        for (int i = 0; i < numKeys; i++) {
+            sum += 1 / Math.pow(i + 1, z);
+            cdf[i] = sum;
+        }
+        String[] keys = new String[numKeys];
+        for (int i = 0; i < numKeys; i++) {
+            keys[i] = String.valueOf(i);
+        }
+
+        String[] stream = new String[numTuples];
+        for (int i = 0; i < numTuples; i++) {
+            int rank = Arrays.binarySearch(cdf, random.nextDouble() * sum);
+            stream[i] = keys[Math.min(rank < 0 ? -rank - 1 : rank, numKeys - 1)];
+        }
+        return stream;
+    }
+}
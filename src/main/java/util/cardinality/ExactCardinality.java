@@ -0,0 +1,138 @@
+package util.cardinality;
+
+import com.clearspring.analytics.stream.cardinality.CardinalityMergeException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Exact distinct count, for small runs: the set of the 64-bit hashes of the elements, in an open addressing
+ * table of longs. Two elements are counted once only if their hashes collide, which is negligible below
+ * billions of elements. Memory grows with the cardinality, 16 to 32 bytes per element.
+ */
+public class ExactCardinality implements IRichCardinality {
+
+    private static final int INITIAL_CAPACITY = 64;   // power of two
+
+    private long[] table;      // 0 marks an empty slot
+    private boolean hasZero;   // whether the hash 0 was offered
+    private int size;          // distinct hashes in the table
+
+    public ExactCardinality() {
+        table = new long[INITIAL_CAPACITY];
+    }
+
+    @Override
+    public boolean offerHashed(long hashedLong) {
+        if (hashedLong == 0) {
+            boolean added = !hasZero;
+            hasZero = true;
+            return added;
+        }
+        int mask = table.length - 1;
+        int i = (int) (hashedLong ^ (hashedLong >>> 32)) & mask;
+        while (table[i] != 0) {
+            if (table[i] == hashedLong) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        table[i] = hashedLong;
+        if (++size > table.length >> 1) {
+            grow();
+        }
+        return true;
+    }
+
+    @Override
+    public boolean offerHashed(int hashedInt) {
+        return offerHashed((long) hashedInt);
+    }
+
+    @Override
+    public boolean offer(Object o) {
+        return offerHashed(MurmurHash.getInstance().hash64(o));
+    }
+
+    @Override
+    public long cardinality() {
+        return hasZero ? size + 1 : size;
+    }
+
+    @Override
+    public int sizeof() {
+        return (int) cardinality() * 8;
+    }
+
+    @Override
+    public long getMemoryFootprint() {
+        return table.length * 8L;
+    }
+
+    /**
+     * @return the hashes, in no particular order
+     */
+    @Override
+    public byte[] getBytes() throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        DataOutputStream dos = new DataOutputStream(baos);
+        dos.writeInt((int) cardinality());
+        if (hasZero) {
+            dos.writeLong(0);
+        }
+        for (long hashed : table) {
+            if (hashed != 0) {
+                dos.writeLong(hashed);
+            }
+        }
+        return baos.toByteArray();
+    }
+
+    @Override
+    public IRichCardinality merge(IRichCardinality... estimators) throws CardinalityMergeException {
+        ExactCardinality merged = new ExactCardinality();
+        merged.addAll(this);
+        if (estimators == null) {
+            return merged;
+        }
+        for (IRichCardinality estimator : estimators) {
+            if (!(estimator instanceof ExactCardinality)) {
+                throw new ExactCardinalityMergeException("Cannot merge estimators of different class");
+            }
+            merged.addAll((ExactCardinality) estimator);
+        }
+        return merged;
+    }
+
+    /**
+     * Adds all the hashes of the other set to this set.
+     * @param other
+     */
+    public void addAll(ExactCardinality other) {
+        hasZero |= other.hasZero;
+        for (long hashed : other.table) {
+            if (hashed != 0) {
+                offerHashed(hashed);
+            }
+        }
+    }
+
+    private void grow() {
+        long[] old = table;
+        table = new long[old.length << 1];
+        size = 0;
+        for (long hashed : old) {
+            if (hashed != 0) {
+                offerHashed(hashed);
+            }
+        }
+    }
+
+    @SuppressWarnings("serial")
+    protected static class ExactCardinalityMergeException extends CardinalityMergeException {
+        public ExactCardinalityMergeException(String message) {
+            super(message);
+        }
+    }
+}
@@ -17,6 +17,17 @@ public abstract class Hash {
 
     public static final int SPOOKY_HASH  = 3;
 
+    /** Seed of {@link #stableHash(Object)} and of the routing hash, fixed so that routing is the same in every run. */
+    public static final int STABLE_SEED = 0x9747b28c;
+
+    /** Scratch buffer of {@link #stableHash(Object, int)}, so that it allocates nothing per call. */
+    private static final ThreadLocal<long[]> STABLE_HASH = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[2];
+        }
+    };
+
     /**
      * This utility method converts String representation of hash function name
      * to a symbolic constant. Currently two function types are supported,
@@ -126,6 +137,54 @@ public abstract class Hash {
      */
     public abstract long hash64(byte[] bytes, int length, int seed);
 
+    /**
+     * Calculate a stable hash of an object with a fixed seed. Unlike {@link #hash(byte[])},
+     * which is seeded with the current time, equal objects always get the same value, in one
+     * run and across runs, so the hash can be used to route keys.
+     * @param o object to hash
+     * @return hash value
+     */
+    public int stableHash(Object o) {
+        return stableHash(o, STABLE_SEED);
+    }
+
+    /**
+     * Calculate a stable hash of an object with a provided seed: the lower 32 bits of
+     * {@link #stableHash128(Object, int, long[])}. Byte arrays are hashed on their bytes.
+     * @param o object to hash
+     * @param seed seed value
+     * @return hash value
+     */
+    public int stableHash(Object o, int seed) {
+        if (o == null) {
+            return 0;
+        }
+        if (o instanceof byte[]) {
+            return hash((byte[]) o, seed);
+        }
+        long[] hash = STABLE_HASH.get();
+        stableHash128(o, seed, hash);
+        return (int) hash[0];
+    }
+
+    /**
+     * Calculate the stable 128-bit MurmurHash3 of a key, which keys are routed and counted with.
+     * Strings are hashed on their chars, integral values on their value and other objects on
+     * their string representation, so that hashing a string or a number allocates nothing.
+     * @param o key to hash
+     * @param seed seed value
+     * @param hash receives the lower 64 bits, then the upper 64 bits
+     */
+    public static void stableHash128(Object o, int seed, long[] hash) {
+        if (o instanceof CharSequence) {
+            MurmurHash3.MurmurHash3_x64_128((CharSequence) o, seed, hash);
+        } else if (o instanceof Integer || o instanceof Long) {
+            MurmurHash3.MurmurHash3_x64_128(((Number) o).longValue(), seed, hash);
+        } else {
+            MurmurHash3.MurmurHash3_x64_128(o.toString(), seed, hash);
+        }
+    }
+
     public abstract int hash(Object o);
     public abstract long hash64(Object o);
 }
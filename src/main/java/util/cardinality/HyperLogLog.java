@@ -146,16 +146,10 @@ public class HyperLogLog implements IRichCardinality {
 
     @Override
     public long cardinality() {
-        double registerSum = 0;
         int count = registerSet.count;
-        double zeros = 0.0;
-        for (int j = 0; j < registerSet.count; j++) {
-            int val = registerSet.get(j);
-            registerSum += 1.0 / (1<<val);
-            if (val == 0) {
-                zeros++;
-            }
-        }
+        int[] zeroRegisters = new int[1];
+        double registerSum = registerSet.sumInversePowers(zeroRegisters);
+        double zeros = zeroRegisters[0];
 
         double estimate = alphaMM * (1 / registerSum);
 
@@ -172,6 +166,11 @@ public class HyperLogLog implements IRichCardinality {
         return registerSet.size * 4;
     }
 
+    @Override
+    public long getMemoryFootprint() {
+        return registerSet.size * 4L;
+    }
+
     @Override
     public byte[] getBytes() throws IOException {
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
@@ -127,6 +127,17 @@ public class HyperLogLogPlus implements IRichCardinality {
      */
     private int sortThreshold;
 
+    /**
+     * Initial size of the temp list, which grows up to sortThreshold + 1, so that an estimator with few
+     * elements does not hold a temp list of m * 0.75 / 4 ints.
+     */
+    private static final int INITIAL_TMP_SET_SIZE = 64;
+
+    /**
+     * Largest sp whose encodings are sorted in place as int keys, idx' followed by the 7 bits of run length and flag.
+     */
+    private static final int MAX_SP_FOR_INT_KEYS = Integer.SIZE - 7;
+
     private int[] tmpSet;
     private int tmpIndex = 0;
     private int[] sparseSet;
@@ -224,7 +235,7 @@ public class HyperLogLogPlus implements IRichCardinality {
                 this.sparseSet = sparseSet;
                 sparseSetThreshold = (int) (m * 0.75);
                 sortThreshold = sparseSetThreshold / 4;
-                tmpSet = new int[sortThreshold+1];
+                tmpSet = new int[Math.min(sortThreshold + 1, INITIAL_TMP_SET_SIZE)];
             } else {
                 this.registerSet = new RegisterSet((int) Math.pow(2, p));
             }
@@ -261,6 +272,9 @@ public class HyperLogLogPlus implements IRichCardinality {
                 //Call the sparse encoding scheme which attempts to stuff as much helpful data into 32 bits as possible
                 int k = encodeHash(hashedLong, p, sp);
                 //Put the encoded data into the temp set
+                if (tmpIndex == tmpSet.length) {
+                    tmpSet = Arrays.copyOf(tmpSet, Math.min(2 * tmpSet.length, sortThreshold + 1));
+                }
                 tmpSet[tmpIndex++] = k;
                 if (tmpIndex > sortThreshold) {
                     mergeTempList();
@@ -414,15 +428,6 @@ public class HyperLogLogPlus implements IRichCardinality {
         }
     }
 
-    /**
-     * returns the hash portion of the of the integer value
-     * @param k - the encoded integer to extract the hash from
-     * @return the encoded hash value
-     */
-    private int getEncodedHash(int k) {
-        return (k << p + (31 - sp));
-    }
-
     /**
      * Get the idx' from an encoding
      *
@@ -464,16 +469,10 @@ public class HyperLogLogPlus implements IRichCardinality {
     public long cardinality() {
         switch (format) {
             case NORMAL:
-                double registerSum = 0;
                 int count = registerSet.count;
-                double zeros = 0;
-                for (int j = 0; j < registerSet.count; j++) {
-                    int val = registerSet.get(j);
-                    registerSum += 1.0 / (1<<val);
-                    if (val == 0) {
-                        zeros++;
-                    }
-                }
+                int[] zeroRegisters = new int[1];
+                double registerSum = registerSet.sumInversePowers(zeroRegisters);
+                double zeros = zeroRegisters[0];
 
                 double estimate = alphaMM * (1 / registerSum);
                 double estimatePrime = estimate;
@@ -561,64 +560,59 @@ public class HyperLogLogPlus implements IRichCardinality {
      *
      * @param set sparse set
      * @param tmp list to be merged
+     * @param tmpLength number of valid entries of tmp
      * @return the new sparse set
      */
-    private int[] merge(int[] set, int[] tmp) {
-        List<Integer> newSet = new ArrayList<Integer>();
+    private int[] merge(int[] set, int[] tmp, int tmpLength) {
+        int setLength = (set == null ? 0 : set.length);
+        int[] newSet = new int[setLength + tmpLength];
+        int newi = 0;
         // iterate over each set and merge the result values
 
-        int setLength = (set == null ? 0 : set.length);
         int seti = 0;
         int tmpi = 0;
-        while (seti < setLength || tmpi < tmp.length) {
+        while (seti < setLength || tmpi < tmpLength) {
             if (seti >= setLength) {
                 int tmpVal = tmp[tmpi];
-                newSet.add(tmpVal);
+                newSet[newi++] = tmpVal;
                 tmpi++;
-                tmpi = consumeDuplicates(tmp, getSparseIndex(tmpVal), tmpi);
-            } else if (tmpi >= tmp.length) {
-                newSet.add(set[seti++]);
+                tmpi = consumeDuplicates(tmp, tmpLength, getSparseIndex(tmpVal), tmpi);
+            } else if (tmpi >= tmpLength) {
+                newSet[newi++] = set[seti++];
             } else {
                 int setVal = set[seti];
                 int tmpVal = tmp[tmpi];
 
                 if (getSparseIndex(setVal) == getSparseIndex(tmpVal)) {
-                    newSet.add(Math.min(setVal, tmpVal));
+                    newSet[newi++] = Math.min(setVal, tmpVal);
                     tmpi++;
-                    tmpi = consumeDuplicates(tmp, getSparseIndex(tmpVal), tmpi);
+                    tmpi = consumeDuplicates(tmp, tmpLength, getSparseIndex(tmpVal), tmpi);
                     seti++;
                 } else if (getSparseIndex(setVal) < getSparseIndex(tmpVal)) {
-                    newSet.add(setVal);
+                    newSet[newi++] = setVal;
                     seti++;
                 } else {
-                    newSet.add(tmpVal);
+                    newSet[newi++] = tmpVal;
                     tmpi++;
-                    tmpi = consumeDuplicates(tmp, getSparseIndex(tmpVal), tmpi);
+                    tmpi = consumeDuplicates(tmp, tmpLength, getSparseIndex(tmpVal), tmpi);
                 }
             }
         }
-        return toIntArray(newSet);
-    }
-
-    private static int[] toIntArray(List<Integer> list){
-        int[] ret = new int[list.size()];
-        for(int i = 0;i < ret.length;i++) {
-            ret[i] = list.get(i);
-        }
-        return ret;
+        return newi == newSet.length ? newSet : Arrays.copyOf(newSet, newi);
     }
 
     /**
      * Eats up the inferior duplicates from the temp list
      *
      * @param tmp    tmp list
+     * @param tmpLength number of valid entries of tmp
      * @param tmpIdx the idx' we want to consume
      * @param tmpi   the current tmp list index
      * @return the new tmp list index
      */
 
-    private int consumeDuplicates(int[] tmp, int tmpIdx, int tmpi) {
-        while (tmpi < tmp.length) {
+    private int consumeDuplicates(int[] tmp, int tmpLength, int tmpIdx, int tmpi) {
+        while (tmpi < tmpLength) {
             int nextTmp = tmp[tmpi];
             int nextTmpIdx = getSparseIndex(nextTmp);
             if (tmpIdx != nextTmpIdx) {
@@ -647,7 +641,8 @@ public class HyperLogLogPlus implements IRichCardinality {
         mergeTempList();
         int[] set = sparseSet;
 
-        List<Integer> newSet = new ArrayList<Integer>();
+        int[] newSet = new int[set.length + tmp.length];
+        int newi = 0;
 
         // iterate over each set and merge the result values
 
@@ -655,27 +650,27 @@ public class HyperLogLogPlus implements IRichCardinality {
         int tmpi = 0;
         while (seti < set.length || tmpi < tmp.length) {
             if (seti >= set.length) {
-                newSet.add(tmp[tmpi++]);
+                newSet[newi++] = tmp[tmpi++];
             } else if (tmpi >= tmp.length) {
-                newSet.add(set[seti++]);
+                newSet[newi++] = set[seti++];
             } else {
                 int setVal = set[seti];
                 int tmpVal = tmp[tmpi];
 
                 if (getSparseIndex(setVal) == getSparseIndex(tmpVal)) {
-                    newSet.add(Math.min(setVal, tmpVal));
+                    newSet[newi++] = Math.min(setVal, tmpVal);
                     tmpi++;
                     seti++;
                 } else if (getSparseIndex(setVal) < getSparseIndex(tmpVal)) {
-                    newSet.add(setVal);
+                    newSet[newi++] = setVal;
                     seti++;
                 } else {
-                    newSet.add(tmpVal);
+                    newSet[newi++] = tmpVal;
                     tmpi++;
                 }
             }
         }
-        return toIntArray(newSet);
+        return newi == newSet.length ? newSet : Arrays.copyOf(newSet, newi);
     }
 
     private static int linearCounting(int m, double V) {
@@ -690,6 +685,14 @@ public class HyperLogLogPlus implements IRichCardinality {
         return registerSet.size * 4;
     }
 
+    @Override
+    public long getMemoryFootprint() {
+        if (format == Format.NORMAL) {
+            return registerSet.size * 4L;
+        }
+        return 4L * (tmpSet.length + (sparseSet == null ? 0 : sparseSet.length));
+    }
+
     @Override
     public byte[] getBytes() throws IOException {
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
@@ -725,53 +728,65 @@ public class HyperLogLogPlus implements IRichCardinality {
      * Script-esque function that handles preparing to and executing merging the sparse set
      * and the temp list.
      * <p/>
-     * Set up the delta encoding, sort the temp list, merge the lists, blow up the temp list.
+     * Set up the delta encoding, sort the temp list, merge the lists, empty the temp list. The temp list is kept
+     * for the next merges unless it is larger than the sparse set, so that sketches of few keys stay small.
      *
      * Exposed for testing purposes
      */
     protected void mergeTempList() {
         int[] retSet = sparseSet;
         if (tmpIndex > 0) {
-            tmpSet = sortEncodedSet(tmpSet, tmpIndex);
-            retSet = merge(sparseSet, tmpSet);
-            tmpSet = new int[sortThreshold+1];
+            sortInPlace(tmpSet, tmpIndex);
+            retSet = merge(sparseSet, tmpSet, tmpIndex);
             tmpIndex = 0;
+            if (tmpSet.length > Math.max(INITIAL_TMP_SET_SIZE, retSet.length)) {
+                tmpSet = new int[Math.min(sortThreshold + 1, INITIAL_TMP_SET_SIZE)];
+            }
         }
         sparseSet = retSet == null ? new int[0] : retSet;
     }
 
     // exposed for testing
     public int[] sortEncodedSet(int[] encodedSet, int validIndex) {
-        List<Integer> sortedList = new ArrayList<Integer>();
-        for (int i = 0; i < validIndex; i++) {
-            int k = encodedSet[i];
-            sortedList.add(k);
-        }
+        int[] sorted = Arrays.copyOf(encodedSet, validIndex);
+        sortInPlace(sorted, validIndex);
+        return sorted;
+    }
 
-        Collections.sort(sortedList, new Comparator<Integer>() {
-            @Override
-            public int compare(Integer left, Integer right) {
-                if (left.equals(right)) {
-                    return 0;
-                }
-                int leftIndex = getSparseIndex(left);
-                int rightIndex = getSparseIndex(right);
-                if (leftIndex < rightIndex) {
-                    return -1;
-                } else if (rightIndex < leftIndex) {
-                    return 1;
-                }
-                int leftHash = getEncodedHash(left);
-                int rightHash = getEncodedHash(right);
-                if (leftHash < rightHash) {
-                    return -1;
-                } else if (rightHash < leftHash) {
-                    return 1;
-                }
-                return 0;
+    /**
+     * Sorts encodings by idx', then by encoded hash, with a primitive sort.
+     * <p/>
+     * Two encodings with the same idx' have the same flag, since the flag only depends on idx', and differ only
+     * in their inverted run length. So idx' followed by the 7 low bits of the encoding, the run length and the flag
+     * (the flag of a 0-flag encoding is enough), is an int key of the same order, which maps back to the encoding.
+     * For sp above MAX_SP_FOR_INT_KEYS the keys are longs. Duplicates of an idx' come out with the highest run
+     * length first, as merge expects, also when sp - p < 6, where comparing the encoded hashes lost run length bits.
+     *
+     * @param encoded    encodings, sorted in place
+     * @param length     number of encodings to sort
+     */
+    private void sortInPlace(int[] encoded, int length) {
+        if (sp > MAX_SP_FOR_INT_KEYS) {
+            long[] keys = new long[length];
+            for (int i = 0; i < length; i++) {
+                keys[i] = ((long) getSparseIndex(encoded[i]) << Integer.SIZE) | (encoded[i] & 0xffffffffL);
+            }
+            Arrays.sort(keys);
+            for (int i = 0; i < length; i++) {
+                encoded[i] = (int) keys[i];
             }
-        });
-        return toIntArray(sortedList);
+            return;
+        }
+        for (int i = 0; i < length; i++) {
+            int k = encoded[i];
+            int key = (k & 1) == 1 ? k : k << 6;   // idx' << 7, then the 7 low bits
+            encoded[i] = key ^ Integer.MIN_VALUE;  // signed order of the keys is their unsigned order
+        }
+        Arrays.sort(encoded, 0, length);
+        for (int i = 0; i < length; i++) {
+            int key = encoded[i] ^ Integer.MIN_VALUE;
+            encoded[i] = (key & 1) == 1 ? key : key >>> 6;
+        }
     }
 
     /**
@@ -29,6 +29,11 @@ public interface IRichCardinality extends IBaseCardinality {
      */
     int sizeof();
 
+    /**
+     * @return estimated bytes held by the estimator now, which may be less than sizeof() in a sparse representation
+     */
+    long getMemoryFootprint();
+
     /**
      * @return
      * @throws IOException
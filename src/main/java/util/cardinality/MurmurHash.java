@@ -1,5 +1,7 @@
 package util.cardinality;
 
+import java.nio.charset.StandardCharsets;
+
 /**
  * This is a very fast, non-cryptographic hash suitable for general hash-based
  * lookup. See http://murmurhash.googlepages.com/ for more details.
@@ -40,13 +42,13 @@ public class MurmurHash extends Hash {
         }
         if (o instanceof String)
         {
-            return hash(((String) o).getBytes());
+            return hash(((String) o).getBytes(StandardCharsets.UTF_8), STABLE_SEED);
         }
         if (o instanceof byte[])
         {
-            return hash((byte[]) o);
+            return hash((byte[]) o, STABLE_SEED);
         }
-        return hash(o.toString());
+        return hash(o.toString().getBytes(StandardCharsets.UTF_8), STABLE_SEED);
     }
 
     public int hash(byte[] data, int length, int seed) {
@@ -102,10 +104,14 @@ public class MurmurHash extends Hash {
     }
 
     public int hashLong(long data) {
+        return hashLong(data, 0);
+    }
+
+    public int hashLong(long data, int seed) {
         int m = 0x5bd1e995;
         int r = 24;
 
-        int h = 0;
+        int h = seed;
 
         int k = (int) data * m;
         k ^= k >>> r;
@@ -82,6 +82,20 @@ public class MurmurHash3 extends Hash {
         return k;
     }
 
+    /**
+     * 32-bit finalizer of MurmurHash3, which spreads consecutive hash codes over an open-addressing table.
+     * @param h hash code
+     * @return mixed hash code
+     */
+    public static int fmix32(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
     /**
      * Hash a value using the x64 128 bit variant of MurmurHash3
      *
@@ -144,6 +158,151 @@ public class MurmurHash3 extends Hash {
         return new long[] { state.h1, state.h2 };
     }
 
+    /**
+     * Hash the UTF-16LE encoding of a char sequence using the x64 128 bit variant of MurmurHash3,
+     * without encoding the chars into a byte array. The state is held in locals, so nothing is allocated.
+     *
+     * @param key value to hash
+     * @param seed random value
+     * @param result array of (at least) two longs which receives the 128 bit hashed key
+     */
+    public static void MurmurHash3_x64_128(final CharSequence key, final int seed, final long[] result) {
+        final int length = key.length() * 2;
+
+        long h1 = 0x9368e53c2f6af274L ^ seed;
+        long h2 = 0x586dcd208f7cd3fdL ^ seed;
+
+        long c1 = 0x87c37b91114253d5L;
+        long c2 = 0x4cf5ad432745937fL;
+
+        long k1, k2;
+
+        for (int i = 0; i < length / 16; i++) {
+            k1 = getcharblock(key, i * 8);
+            k2 = getcharblock(key, i * 8 + 4);
+
+            // bmix
+            k1 *= c1;
+            k1 = (k1 << 23) | (k1 >>> 64 - 23);
+            k1 *= c2;
+            h1 ^= k1;
+            h1 += h2;
+
+            h2 = (h2 << 41) | (h2 >>> 64 - 41);
+
+            k2 *= c2;
+            k2 = (k2 << 23) | (k2 >>> 64 - 23);
+            k2 *= c1;
+            h2 ^= k2;
+            h2 += h1;
+
+            h1 = h1 * 3 + 0x52dce729;
+            h2 = h2 * 3 + 0x38495ab5;
+
+            c1 = c1 * 5 + 0x7b7d159c;
+            c2 = c2 * 5 + 0x6bce6396;
+        }
+
+        k1 = 0;
+        k2 = 0;
+
+        int tail = (length >>> 4) << 4;
+
+        // same (sign extending) byte mixing as the tail of the byte[] variant
+        for (int i = (length & 15) - 1; i >= 0; i--) {
+            char c = key.charAt((tail + i) >>> 1);
+            byte b = (byte) ((i & 1) == 0 ? c : c >>> 8);
+            if (i < 8) {
+                k1 ^= (long) b << (8 * i);
+            } else {
+                k2 ^= (long) b << (8 * (i - 8));
+            }
+        }
+
+        if ((length & 15) != 0) {
+            // bmix
+            k1 *= c1;
+            k1 = (k1 << 23) | (k1 >>> 64 - 23);
+            k1 *= c2;
+            h1 ^= k1;
+            h1 += h2;
+
+            h2 = (h2 << 41) | (h2 >>> 64 - 41);
+
+            k2 *= c2;
+            k2 = (k2 << 23) | (k2 >>> 64 - 23);
+            k2 *= c1;
+            h2 ^= k2;
+            h2 += h1;
+
+            h1 = h1 * 3 + 0x52dce729;
+            h2 = h2 * 3 + 0x38495ab5;
+        }
+
+        finish(h1, h2, length, result);
+    }
+
+    /**
+     * Hash the 8 little-endian bytes of a long using the x64 128 bit variant of MurmurHash3,
+     * without encoding it into a byte array. The state is held in locals, so nothing is allocated.
+     *
+     * @param key value to hash
+     * @param seed random value
+     * @param result array of (at least) two longs which receives the 128 bit hashed key
+     */
+    public static void MurmurHash3_x64_128(final long key, final int seed, final long[] result) {
+        long h1 = 0x9368e53c2f6af274L ^ seed;
+        long h2 = 0x586dcd208f7cd3fdL ^ seed;
+
+        long c1 = 0x87c37b91114253d5L;
+        long c2 = 0x4cf5ad432745937fL;
+
+        // same (sign extending) byte mixing as the tail of the byte[] variant
+        long k1 = 0;
+        for (int i = 7; i >= 0; i--) {
+            k1 ^= (long) (byte) (key >>> (8 * i)) << (8 * i);
+        }
+
+        // bmix, k2 is 0
+        k1 *= c1;
+        k1 = (k1 << 23) | (k1 >>> 64 - 23);
+        k1 *= c2;
+        h1 ^= k1;
+        h1 += h2;
+
+        h2 = (h2 << 41) | (h2 >>> 64 - 41);
+        h2 += h1;
+
+        h1 = h1 * 3 + 0x52dce729;
+        h2 = h2 * 3 + 0x38495ab5;
+
+        finish(h1, h2, 8, result);
+    }
+
+    static long getcharblock(CharSequence key, int i) {
+        return
+                ((long) key.charAt(i + 0) << 0)
+                        | ((long) key.charAt(i + 1) << 16)
+                        | ((long) key.charAt(i + 2) << 32)
+                        | ((long) key.charAt(i + 3) << 48);
+    }
+
+    static void finish(long h1, long h2, int length, long[] result) {
+        h2 ^= length;
+
+        h1 += h2;
+        h2 += h1;
+
+        h1 = fmix(h1);
+        h2 = fmix(h2);
+
+        h1 += h2;
+        h2 += h1;
+
+        result[0] = h1;
+        result[1] = h2;
+    }
+
     /**
      * Hash a value using the x64 64 bit variant of MurmurHash3
      *
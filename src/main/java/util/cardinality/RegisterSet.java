@@ -5,6 +5,22 @@ public class RegisterSet
     public final static int LOG2_BITS_PER_WORD = 6;
     public final static int REGISTER_SIZE = 5;
 
+    // registers 0, 2 and 4 of a word, each followed by 5 free bits once the odd registers are masked out
+    private final static int EVEN_REGISTERS = 0x1f | 0x1f << 10 | 0x1f << 20;
+    // bit above each even register, where a lane-wise subtraction leaves its borrow
+    private final static int GUARD_BITS = EVEN_REGISTERS + (0x1 | 0x1 << 10 | 0x1 << 20);
+
+    // 2^-r for every register value r
+    private final static double[] INVERSE_POWERS_OF_TWO = new double[1 << REGISTER_SIZE];
+
+    static
+    {
+        for (int r = 0; r < INVERSE_POWERS_OF_TWO.length; r++)
+        {
+            INVERSE_POWERS_OF_TWO[r] = 1.0 / (1L << r);
+        }
+    }
+
     public final int count;
     public final int size;
 
@@ -83,21 +99,60 @@ public class RegisterSet
         }
     }
 
+    /**
+     * Sets every register to the max of itself and the register of that, a word at a time: the even and the odd
+     * registers of a word are compared as three lanes each, without extracting them.
+     * @param that a register set of the same size
+     */
     public void merge(RegisterSet that)
     {
         for (int bucket = 0; bucket < M.length; bucket++)
         {
-            int word = 0;
-            for (int j = 0; j < LOG2_BITS_PER_WORD; j++)
-            {
-                int mask = 0x1f << (REGISTER_SIZE * j);
+            int thisWord = this.M[bucket];
+            int thatWord = that.M[bucket];
+            this.M[bucket] = maxOfLanes(thisWord & EVEN_REGISTERS, thatWord & EVEN_REGISTERS)
+                    | maxOfLanes((thisWord >>> REGISTER_SIZE) & EVEN_REGISTERS,
+                                 (thatWord >>> REGISTER_SIZE) & EVEN_REGISTERS) << REGISTER_SIZE;
+        }
+    }
+
+    /**
+     * @param x three registers, at the positions of EVEN_REGISTERS
+     * @param y three registers, at the same positions
+     * @return lane-wise max of x and y
+     */
+    private static int maxOfLanes(int x, int y)
+    {
+        // 32 + x - y in every lane: its guard bit is set iff x >= y, and no lane borrows from the next
+        int xAtLeastY = ((x | GUARD_BITS) - y) & GUARD_BITS;
+        int mask = xAtLeastY - (xAtLeastY >>> REGISTER_SIZE);   // 0x1f in the lanes where x >= y
+        return (x & mask) | (y & ~mask);
+    }
 
-                int thisVal = (this.M[bucket] & mask);
-                int thatVal = (that.M[bucket] & mask);
-                word |= (thisVal < thatVal) ? thatVal : thisVal;
+    /**
+     * Sum of 2^-r over the registers r, in register order, reading each word once.
+     * @param zeros receives the number of registers equal to 0 in zeros[0]
+     * @return the sum
+     */
+    public double sumInversePowers(int[] zeros)
+    {
+        double sum = 0;
+        int zeroCount = 0;
+        int position = 0;
+        for (int bucket = 0; position < count; bucket++)
+        {
+            int word = M[bucket];
+            int end = Math.min(position + LOG2_BITS_PER_WORD, count);
+            for (; position < end; position++)
+            {
+                int val = word & 0x1f;
+                sum += INVERSE_POWERS_OF_TWO[val];
+                zeroCount += (val - 1) >>> 31;   // 1 iff val == 0
+                word >>>= REGISTER_SIZE;
             }
-            this.M[bucket] = word;
         }
+        zeros[0] = zeroCount;
+        return sum;
     }
 
     int[] readOnlyBits()
@@ -0,0 +1,253 @@
+package util.load;
+
+import util.cardinality.Hash;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>
+ * Count-Min sketch of Graham Cormode and S. Muthukrishnan, with conservative update: an add only raises
+ * the counters of the item which are below its new estimate. The estimate of an item never falls below
+ * its true count and, with probability 1 - delta, is above it by at most epsilon times the number of
+ * elements, where the width is e / epsilon and the depth ln(1 / delta).
+ * </p>
+ *
+ * <p>
+ * The memory is fixed: depth rows of counters, the width rounded up to a power of two, in one array.
+ * The counters of an item are found from one 128 bit MurmurHash3 of it, the i-th one at h1 + i * h2.
+ * The sketch does not know its items, so the k items with the highest estimates are kept in a min-heap
+ * for the {@link IFrequencyList} methods. Instances are not thread-safe.
+ * </p>
+ *
+ * @param <T>
+ */
+public class CountMinSketch<T> extends BaseFrequency<T> {
+
+    private final int depth;
+    private final int width;
+    private final int mask;
+    private final long[] table;        // row i holds the counters [i * width, (i + 1) * width)
+
+    private final long[] hashed;       // 128 bit hash of the current item
+    private final int[] cells;         // counters of the current item
+
+    private final int k;
+    private final List<HeapEntry<T>> heap;   // min-heap of the top-k items by estimate
+    private final Map<T, HeapEntry<T>> topK;
+
+    private long elementsCounted;
+
+    /**
+     * @param epsilon error of the estimates, relative to the number of elements. Has to be out of (0,1).
+     * @param delta probability that an estimate exceeds the error. Has to be out of (0,1).
+     * @param k number of items with the highest estimates to keep
+     */
+    public CountMinSketch(double epsilon, double delta, int k) {
+        this((int) Math.ceil(Math.log(1 / checkProbability(delta))), (int) Math.ceil(Math.E / checkProbability(epsilon)), k);
+    }
+
+    /**
+     * @param depth number of rows
+     * @param width number of counters per row, rounded up to a power of two
+     * @param k number of items with the highest estimates to keep
+     */
+    public CountMinSketch(int depth, int width, int k) {
+        if (depth <= 0 || width <= 0 || width > 1 << 30 || (long) depth * width > 1 << 30) {
+            throw new IllegalArgumentException("Depth and width have to be > 0, with at most 2^30 counters.");
+        }
+        if (k <= 0) {
+            throw new IllegalArgumentException("k has to be > 0");
+        }
+        this.depth = depth;
+        this.width = width == 1 ? 1 : Integer.highestOneBit(width - 1) << 1;
+        this.mask = this.width - 1;
+        this.table = new long[depth * this.width];
+        this.hashed = new long[2];
+        this.cells = new int[depth];
+
+        this.k = k;
+        this.heap = new ArrayList<>(k);
+        this.topK = new HashMap<>(k * 2);
+    }
+
+    private static double checkProbability(double p) {
+        if (p <= 0 || p >= 1) {
+            throw new IllegalArgumentException("Epsilon and delta have to be > 0 and < 1.");
+        }
+        return p;
+    }
+
+    @Override
+    public boolean add(T item, long incrementCount) {
+        locate(item);
+        long estimate = Long.MAX_VALUE;
+        for (int i = 0; i < depth; i++) {
+            estimate = Math.min(estimate, table[cells[i]]);
+        }
+        boolean newItem = estimate == 0;
+
+        estimate += incrementCount;
+        for (int i = 0; i < depth; i++) {
+            if (table[cells[i]] < estimate) {   // conservative update
+                table[cells[i]] = estimate;
+            }
+        }
+        elementsCounted += incrementCount;
+
+        offerTopK(item, estimate);
+        return newItem;
+    }
+
+    @Override
+    public long estimateCount(T item) {
+        locate(item);
+        long estimate = Long.MAX_VALUE;
+        for (int i = 0; i < depth; i++) {
+            estimate = Math.min(estimate, table[cells[i]]);
+        }
+        return estimate;
+    }
+
+    /**
+     * @return whether the item is among the k items with the highest estimates. A non-zero estimate says
+     * little, since the counters of most items are shared with other items.
+     */
+    @Override
+    public boolean contains(T item) {
+        return topK.containsKey(item);
+    }
+
+    @Override
+    public long size() {
+        return elementsCounted;
+    }
+
+    /**
+     * @return the items with the highest estimates, at most k
+     */
+    @Override
+    public Set<T> keySet() {
+        return Collections.unmodifiableSet(topK.keySet());
+    }
+
+    /**
+     * @return the items among the top-k whose estimate is at least minSupport times the number of elements
+     */
+    @Override
+    public List<CountEntry<T>> getFrequentItems(double minSupport) {
+        List<CountEntry<T>> result = new ArrayList<>();
+        for (HeapEntry<T> entry : heap) {
+            long estimate = estimateCount(entry.item);   // counters may have grown since the item was offered
+            if (estimate >= minSupport * elementsCounted) {
+                result.add(new CountEntry<>(entry.item, estimate));
+            }
+        }
+        return result;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return bytes of the counters
+     */
+    public long getMemoryFootprint() {
+        return (long) table.length * Long.BYTES;
+    }
+
+    /**
+     * Hashes the item and computes its counters.
+     */
+    private void locate(T item) {
+        Hash.stableHash128(item, Hash.STABLE_SEED, hashed);
+        long h1 = hashed[0];
+        long h2 = hashed[1];
+        for (int i = 0; i < depth; i++) {
+            cells[i] = i * width + (int) ((h1 + i * h2) & mask);
+        }
+    }
+
+    private void offerTopK(T item, long estimate) {
+        HeapEntry<T> entry = topK.get(item);
+        if (entry != null) {
+            entry.frequency = estimate;
+            siftDown(entry.index);
+            return;
+        }
+        if (heap.size() < k) {
+            entry = new HeapEntry<>(item, estimate);
+            topK.put(item, entry);
+            entry.index = heap.size();
+            heap.add(entry);
+            siftUp(entry.index);
+        } else if (estimate > heap.get(0).frequency) {
+            entry = heap.get(0);               // replaces the item with the lowest estimate
+            topK.remove(entry.item);
+            entry.item = item;
+            entry.frequency = estimate;
+            topK.put(item, entry);
+            siftDown(0);
+        }
+    }
+
+    private void siftUp(int index) {
+        HeapEntry<T> entry = heap.get(index);
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap.get(parent).frequency <= entry.frequency) {
+                break;
+            }
+            place(heap.get(parent), index);
+            index = parent;
+        }
+        place(entry, index);
+    }
+
+    private void siftDown(int index) {
+        HeapEntry<T> entry = heap.get(index);
+        int heapSize = heap.size();
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && heap.get(child + 1).frequency < heap.get(child).frequency) {
+                child++;
+            }
+            if (entry.frequency <= heap.get(child).frequency) {
+                break;
+            }
+            place(heap.get(child), index);
+            index = child;
+        }
+        place(entry, index);
+    }
+
+    private void place(HeapEntry<T> entry, int index) {
+        heap.set(index, entry);
+        entry.index = index;
+    }
+
+    /**
+     * Entry of the top-k heap, which knows its position in the heap.
+     */
+    private static class HeapEntry<T> extends CountEntry<T> {
+        private static final long serialVersionUID = 1L;
+
+        private int index;
+
+        HeapEntry(T item, long frequency) {
+            super(item, frequency);
+        }
+    }
+}
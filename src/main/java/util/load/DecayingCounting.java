@@ -0,0 +1,132 @@
+package util.load;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>
+ * Exponentially decayed frequency counting: every half-life elements, all counts and the number of elements
+ * are halved, so an element counts for half as much after each half-life. A key which stops occurring
+ * loses half of its frequency per half-life, so it leaves the head of the stream in bounded time.
+ * </p>
+ *
+ * <p>
+ * After a halving, the keys whose count is at most error times the (decayed) number of elements are
+ * dropped, as lossy counting does, so the summary holds the keys of the last half-life plus at most
+ * 1 / error older ones. {@link #size()} is the decayed number of elements, so that count / size() is the
+ * decayed frequency of a key. Instances are not thread-safe.
+ * </p>
+ *
+ * @param <T>
+ */
+public class DecayingCounting<T> extends BaseFrequency<T> {
+
+    private final long halfLife;
+    private final double error;
+
+    private final Map<T, CountEntry<T>> counts;
+    private long decayedCount;      // decayed number of elements
+    private long elementsCounted;   // number of elements
+
+    /**
+     * @param halfLife number of elements after which the counts are halved
+     * @param error keys whose count is at most error times the decayed number of elements are dropped
+     *              when the counts are halved. Has to be out of [0,1).
+     */
+    public DecayingCounting(long halfLife, double error) {
+        if (halfLife <= 0) {
+            throw new IllegalArgumentException("Half-life has to be > 0.");
+        }
+        if (error < 0 || error >= 1) {
+            throw new IllegalArgumentException("Error has to be >= 0 and < 1.");
+        }
+        this.halfLife = halfLife;
+        this.error = error;
+        this.counts = new HashMap<>();
+    }
+
+    @Override
+    public boolean add(T item, long incrementCount) {
+        boolean newItem = false;
+        CountEntry<T> entry = counts.get(item);
+        if (entry == null) {
+            counts.put(item, new CountEntry<>(item, incrementCount));
+            newItem = true;
+        } else {
+            entry.frequency += incrementCount;
+        }
+        decayedCount += incrementCount;
+
+        if (++elementsCounted % halfLife == 0) {
+            decay();
+        }
+        return newItem;
+    }
+
+    @Override
+    public long estimateCount(T item) {
+        CountEntry<T> entry = counts.get(item);
+        return entry == null ? 0L : entry.frequency;
+    }
+
+    @Override
+    public boolean contains(T item) {
+        return counts.containsKey(item);
+    }
+
+    /**
+     * @return decayed number of elements
+     */
+    @Override
+    public long size() {
+        return decayedCount;
+    }
+
+    /**
+     * @return number of elements, without decay
+     */
+    public long getElementsCounted() {
+        return elementsCounted;
+    }
+
+    public long getHalfLife() {
+        return halfLife;
+    }
+
+    @Override
+    public Set<T> keySet() {
+        return Collections.unmodifiableSet(counts.keySet());
+    }
+
+    @Override
+    public List<CountEntry<T>> getFrequentItems(double minSupport) {
+        List<CountEntry<T>> result = new ArrayList<>();
+        for (CountEntry<T> entry : counts.values()) {
+            if (entry.frequency >= minSupport * decayedCount) {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Halves the counts, and drops the keys whose count became too small.
+     */
+    private void decay() {
+        decayedCount >>= 1;
+        double threshold = error * decayedCount;
+        Iterator<CountEntry<T>> it = counts.values().iterator();
+        while (it.hasNext()) {
+            CountEntry<T> entry = it.next();
+            entry.frequency >>= 1;
+            if (entry.frequency == 0 || entry.frequency <= threshold) {
+                it.remove();
+            }
+        }
+    }
+}
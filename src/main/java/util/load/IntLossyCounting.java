@@ -0,0 +1,186 @@
+package util.load;
+
+import util.cardinality.MurmurHash3;
+
+/**
+ * <p>
+ * Lossy Counting over int items, with the same windows and compression as {@link LossyCounting},
+ * but without boxing: the entries live in an open-addressing table of parallel primitive arrays,
+ * probed linearly. A slot is free when its frequency is 0.
+ * </p>
+ *
+ * <p>
+ * Compression deletes entries in place by shifting the following entries of the cluster back,
+ * so the table never holds tombstones.
+ * </p>
+ */
+public class IntLossyCounting {
+
+    private static final int INITIAL_CAPACITY = 1024;   // power of two
+
+    private final int windowSize;
+    private long currentWindow;
+    private final double error;
+    private long elementsCounted;
+
+    private int[] items;
+    private long[] frequencies;    // 0 for a free slot
+    private long[] maxErrors;
+    private int mask;
+    private int entries;
+
+    /**
+     * @param maxError the maximum error bound
+     */
+    public IntLossyCounting(double maxError) {
+        if (maxError < 0 || maxError > 1) {
+            throw new IllegalArgumentException("Maximal error needs to be a double between 0 and 1");
+        }
+
+        this.windowSize = (int) Math.ceil(1 / maxError);
+        this.error = maxError;
+        this.elementsCounted = 0;
+        this.currentWindow = 0;
+
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Counts one occurrence of the item.
+     * @param item
+     * @return whether the item was not counted yet
+     */
+    public boolean add(int item) {
+        int slot = find(item);
+        boolean newItem = frequencies[slot] == 0;
+
+        if (newItem) {
+            items[slot] = item;
+            frequencies[slot] = 1;
+            maxErrors[slot] = currentWindow - 1;
+            if (++entries > (mask + 1) >> 1) {   // keep the load at most 1/2
+                grow();
+            }
+        } else {
+            frequencies[slot]++;
+        }
+        elementsCounted++;
+
+        currentWindow = (long) Math.ceil(elementsCounted / (double) windowSize);
+
+        if (elementsCounted % windowSize == 0) {
+            compress();
+        }
+
+        return newItem;
+    }
+
+    /**
+     * @param item
+     * @return the estimated frequency of the item, 0 if it is not counted (anymore)
+     */
+    public long estimateCount(int item) {
+        return frequencies[find(item)];
+    }
+
+    public boolean contains(int item) {
+        return frequencies[find(item)] != 0;
+    }
+
+    public long size() {
+        return elementsCounted;
+    }
+
+    /**
+     * @return number of items counted at the moment
+     */
+    public int entries() {
+        return entries;
+    }
+
+    /**
+     * @return number of items between two compressions
+     */
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    public double getError() {
+        return error;
+    }
+
+    /**
+     * @param item
+     * @return slot of the item, or the free slot where it would be inserted
+     */
+    private int find(int item) {
+        int slot = MurmurHash3.fmix32(item) & mask;
+        while (frequencies[slot] != 0 && items[slot] != item) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Removes the entries whose frequency plus maximal error is below the current window.
+     * The scan starts after a free slot, so no cluster wraps around the start of the scan
+     * and entries shifted back into the current slot are examined again.
+     */
+    private void compress() {
+        int start = 0;
+        while (frequencies[start] != 0) {
+            start++;
+        }
+        for (int n = 0; n <= mask; n++) {
+            int slot = (start + 1 + n) & mask;
+            while (frequencies[slot] != 0 && frequencies[slot] + maxErrors[slot] < currentWindow) {
+                delete(slot);
+            }
+        }
+    }
+
+    /**
+     * Backward-shift deletion: moves the following entries of the cluster that may live
+     * in the freed slot into it, so that every entry stays reachable from its home slot.
+     */
+    private void delete(int slot) {
+        entries--;
+        int free = slot;
+        int next = (free + 1) & mask;
+        while (frequencies[next] != 0) {
+            int home = MurmurHash3.fmix32(items[next]) & mask;
+            // the entry can move to the free slot when its home is not in (free, next]
+            if (((next - home) & mask) >= ((next - free) & mask)) {
+                items[free] = items[next];
+                frequencies[free] = frequencies[next];
+                maxErrors[free] = maxErrors[next];
+                free = next;
+            }
+            next = (next + 1) & mask;
+        }
+        frequencies[free] = 0;
+    }
+
+    private void grow() {
+        int[] oldItems = items;
+        long[] oldFrequencies = frequencies;
+        long[] oldMaxErrors = maxErrors;
+
+        allocate(oldItems.length << 1);
+        for (int i = 0; i < oldItems.length; i++) {
+            if (oldFrequencies[i] != 0) {
+                int slot = find(oldItems[i]);
+                items[slot] = oldItems[i];
+                frequencies[slot] = oldFrequencies[i];
+                maxErrors[slot] = oldMaxErrors[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        items = new int[capacity];
+        frequencies = new long[capacity];
+        maxErrors = new long[capacity];
+        mask = capacity - 1;
+    }
+}
@@ -1,7 +1,8 @@
 package util.load;
 
+import util.cardinality.MurmurHash3;
+
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * <p>
@@ -10,10 +11,20 @@ import java.util.concurrent.ConcurrentHashMap;
  * 'Gurmeet Singh Manku'.
  * </p>
  *
+ * <p>
+ * The entries live in a single-threaded open-addressing table with linear probing, so an add
+ * probes the table once. The frequency and maximum error of an item are kept in parallel arrays
+ * of primitives, so counting allocates no entry objects. Compression deletes entries in place by
+ * shifting the following entries of their cluster back. Instances are not thread-safe.
+ * </p>
+ *
  * @author Marcin Skirzynski (main work), Benedikt Kulmann (modifications)
  * @param <T>
  */
 public class LossyCounting<T> extends BaseFrequency<T> {
+
+    private static final int INITIAL_CAPACITY = 1024;   // power of two
+
     /**
      * The window size which will be set at
      * the beginning and will never change
@@ -33,10 +44,15 @@ public class LossyCounting<T> extends BaseFrequency<T> {
     private double error;
 
     /**
-     * The data structures which holds all
-     * counting information.
+     * The data structures which hold all
+     * counting information: the items, null for a free slot,
+     * and their frequencies and maximum errors in parallel arrays.
      */
-    private Map<T, CountEntryWithMaxError<T>> dataStructure;
+    private Object[] items;
+    private long[] frequencies;
+    private long[] maxErrors;
+    private int mask;
+    private int numEntries;
 
     /**
      * The total count of all counted elements
@@ -44,6 +60,8 @@ public class LossyCounting<T> extends BaseFrequency<T> {
      */
     private long elementsCounted;
 
+    private Set<T> keySet;
+
     /**
      * <p>
      * Constructs an instance of the LossyCounting algorithm
@@ -62,8 +80,8 @@ public class LossyCounting<T> extends BaseFrequency<T> {
         this.currentWindow = 1;
         this.elementsCounted = 0;
         this.error = maxError;
-        this.dataStructure = new ConcurrentHashMap<>();
 
+        allocate(INITIAL_CAPACITY);
         updateCurrentWindow();
     }
 
@@ -71,12 +89,14 @@ public class LossyCounting<T> extends BaseFrequency<T> {
     public boolean add(T item, long incrementCount) {
         boolean newItem = true;
 
-        if (containsItem(item)) {
-            incrementCount(item, incrementCount);
+        int slot = find(item);
+        if (items[slot] != null) {
+            frequencies[slot] += incrementCount;
             newItem = false;
         } else {
-            insertItem(item, incrementCount, currentWindow - 1);
+            insertItem(slot, item, incrementCount, currentWindow - 1);
         }
+        elementsCounted++;
 
         updateCurrentWindow();
 
@@ -104,14 +124,15 @@ public class LossyCounting<T> extends BaseFrequency<T> {
      */
     @Override
     public long estimateCount(T item) {
-        if (dataStructure.containsKey(item)) {
-            return dataStructure.get(item).frequency;
+        int slot = find(item);
+        if (items[slot] != null) {
+            return frequencies[slot];
         }
         return 0L;
     }
 
     public boolean contains(T item) {
-        return dataStructure.containsKey(item);
+        return items[find(item)] != null;
     }
 
     @Override
@@ -119,17 +140,34 @@ public class LossyCounting<T> extends BaseFrequency<T> {
         return elementsCounted;
     }
 
+    /**
+     * @return number of elements between two compressions
+     */
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    /**
+     * @return a read-only view of the counted items
+     */
     @Override
     public Set<T> keySet() {
-        return dataStructure.keySet();
+        if (keySet == null) {
+            keySet = new KeySet();
+        }
+        return keySet;
     }
 
+    /**
+     * @param minSupport
+     * @return new entries of the items whose frequency is at least (minSupport - error) * N
+     */
+    @SuppressWarnings("unchecked")
     public List<CountEntry<T>> getFrequentItems(double minSupport) {
         List<CountEntry<T>> result = new ArrayList<>();
-        for (T element : dataStructure.keySet()) {
-            CountEntry<T> entry = dataStructure.get(element);
-            if (entry.frequency >= (minSupport - error) * elementsCounted) {
-                result.add(entry);
+        for (int slot = 0; slot <= mask; slot++) {
+            if (items[slot] != null && frequencies[slot] >= (minSupport - error) * elementsCounted) {
+                result.add(new CountEntryWithMaxError<>((T) items[slot], frequencies[slot], maxErrors[slot]));
             }
         }
         return result;
@@ -140,17 +178,22 @@ public class LossyCounting<T> extends BaseFrequency<T> {
      * Compresses the data structure. Will be called automatically
      * by the count method, when a new window is reached.
      * </p>
+     *
+     * <p>
+     * The scan starts after a free slot, so no cluster wraps around the start of the scan
+     * and entries shifted back into the current slot are examined again.
+     * </p>
      */
     private void compress() {
-        Collection<T> markedToRemove = new ArrayList<T>();
-        for (T element : dataStructure.keySet()) {
-            CountEntryWithMaxError<T> entry = dataStructure.get(element);
-            if (entry.frequency + entry.maxError < currentWindow) {
-                markedToRemove.add(element);
-            }
+        int start = 0;
+        while (items[start] != null) {
+            start++;
         }
-        for (T element : markedToRemove) {
-            dataStructure.remove(element);
+        for (int n = 0; n <= mask; n++) {
+            int slot = (start + 1 + n) & mask;
+            while (items[slot] != null && frequencies[slot] + maxErrors[slot] < currentWindow) {
+                delete(slot);
+            }
         }
     }
 
@@ -163,17 +206,116 @@ public class LossyCounting<T> extends BaseFrequency<T> {
         this.currentWindow = (int) Math.ceil(elementsCounted / (double) windowSize);
     }
 
-    private boolean containsItem(T item) {
-        return dataStructure.containsKey(item);
+    /**
+     * @param item
+     * @return slot of the item, or the free slot where it would be inserted
+     */
+    private int find(Object item) {
+        int slot = MurmurHash3.fmix32(item.hashCode()) & mask;
+        while (items[slot] != null && !items[slot].equals(item)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
     }
 
-    private void incrementCount(T item, long incrementCount) {
-        dataStructure.get(item).frequency += incrementCount;
-        elementsCounted++;
+    private void insertItem(int slot, T item, long initialFrequency, long maxError) {
+        items[slot] = item;
+        frequencies[slot] = initialFrequency;
+        maxErrors[slot] = maxError;
+        if (++numEntries > (mask + 1) >> 1) {   // keep the load at most 1/2
+            resize((mask + 1) << 1);
+        }
     }
 
-    private void insertItem(T item, long initialFrequency, long maxError) {
-        dataStructure.put(item, new CountEntryWithMaxError<>(item, initialFrequency, maxError));
-        elementsCounted++;
+    /**
+     * Backward-shift deletion: moves the following entries of the cluster that may live
+     * in the freed slot into it, so that every entry stays reachable from its home slot.
+     */
+    private void delete(int slot) {
+        numEntries--;
+
+        int free = slot;
+        int next = (free + 1) & mask;
+        while (items[next] != null) {
+            int home = MurmurHash3.fmix32(items[next].hashCode()) & mask;
+            // the entry can move to the free slot when its home is not in (free, next]
+            if (((next - home) & mask) >= ((next - free) & mask)) {
+                items[free] = items[next];
+                frequencies[free] = frequencies[next];
+                maxErrors[free] = maxErrors[next];
+                free = next;
+            }
+            next = (next + 1) & mask;
+        }
+        items[free] = null;
+    }
+
+    private void resize(int capacity) {
+        Object[] oldItems = items;
+        long[] oldFrequencies = frequencies;
+        long[] oldMaxErrors = maxErrors;
+
+        allocate(capacity);
+        for (int i = 0; i < oldItems.length; i++) {
+            if (oldItems[i] != null) {
+                int slot = find(oldItems[i]);
+                items[slot] = oldItems[i];
+                frequencies[slot] = oldFrequencies[i];
+                maxErrors[slot] = oldMaxErrors[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        items = new Object[capacity];
+        frequencies = new long[capacity];
+        maxErrors = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Read-only view of the items of the table.
+     */
+    private class KeySet extends AbstractSet<T> {
+
+        @Override
+        public Iterator<T> iterator() {
+            return new Iterator<T>() {
+                private int slot = advance(0);
+
+                private int advance(int from) {
+                    while (from <= mask && items[from] == null) {
+                        from++;
+                    }
+                    return from;
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return slot <= mask;
+                }
+
+                @Override
+                @SuppressWarnings("unchecked")
+                public T next() {
+                    if (slot > mask) {
+                        throw new NoSuchElementException();
+                    }
+                    T item = (T) items[slot];
+                    slot = advance(slot + 1);
+                    return item;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return numEntries;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o != null && items[find(o)] != null;
+        }
     }
 }
@@ -1,16 +1,26 @@
 package util.load;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
-import java.util.LinkedList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
  * Implementation of the Space-Saving algorithm described in the paper
  * "Efficient Computation of Frequent and Top-k Elements in Data Streams"
  * written by 'Ahmed Metwally', 'Divyakant Agrawal' and 'Amr El Abbadi'
+ * <p>
+ * The counters are kept in the Stream-Summary of the paper: a hash index from item to counter,
+ * and a doubly-linked list of buckets in ascending order of count, each bucket holding the
+ * doubly-linked list of its counters. An increment by 1 moves a counter to the next bucket,
+ * so adds are O(1), the counter to replace is the first one of the first bucket, and the
+ * top-k and frequent items are read from the last buckets. Buckets are reused, so a full
+ * summary allocates nothing on adds.
+ * <p>
+ * The offer / topK methods follow the clearspring StreamSummary, so the summary can replace it.
  *
  * @author Lukas Kalabis
  * @param <T> The type of object that will be stored
@@ -21,9 +31,20 @@ public class SpaceSaving<T> extends BaseFrequency<T> {
     private int    counter = 1000;
 
     /**
-     * The data structure which holds all counting information.
+     * The hash index from item to counter.
      */
-    private final List<Bucket<List<T>>> dataStructure;
+    private final Map<T, Counter<T>> counterMap;
+
+    /**
+     * Buckets with the lowest and the highest count.
+     */
+    private Bucket<T> minBucket;
+    private Bucket<T> maxBucket;
+
+    /**
+     * Empty buckets, reused for new counts.
+     */
+    private final ArrayDeque<Bucket<T>> spareBuckets;
 
     /**
      * The total count of all counted elements in the stream so far.
@@ -32,6 +53,14 @@ public class SpaceSaving<T> extends BaseFrequency<T> {
 
     private boolean guaranteed = true;
 
+    /**
+     * Creates a new instance of SpaceSaving
+     * @param counters number of available counters
+     */
+    public SpaceSaving(int counters) {
+        this(counters, 0.1d, 0.1d);
+    }
+
     /**
      * Creates a new instance of SpaceSaving
      * @param counters number of available counters
@@ -54,35 +83,70 @@ public class SpaceSaving<T> extends BaseFrequency<T> {
         this.error   = maxError;
 
         elementsCounted = 0L;
-        dataStructure = new LinkedList<Bucket<List<T>>>();
-
-        for (int i = 0; i < this.counter; i++) {
-            dataStructure.add(new Bucket<List<T>>(new LinkedList<T>(), 0, 0));
-        }
+        counterMap = new HashMap<>(counters * 2);
+        spareBuckets = new ArrayDeque<>();
     }
 
     @Override
     public boolean add(T item, long incrementCount) {
-        if (containsItem(item)) {
-            incrementCount(item, incrementCount);
+        Counter<T> c = counterMap.get(item);
+        if (c != null) {
+            increment(c, incrementCount);
             return false;
-        } else {
-            // Replace the item with the lowest count with the new one.
-            insertItem(item, incrementCount);
-            return true;
         }
+        insertItem(item, incrementCount);
+        return true;
+    }
+
+    /**
+     * Counts one occurrence of the item.
+     * @param item
+     * @return whether the item was not counted yet
+     */
+    public boolean offer(T item) {
+        return add(item, 1);
+    }
+
+    /**
+     * @param item
+     * @param incrementCount
+     * @return whether the item was not counted yet
+     */
+    public boolean offer(T item, int incrementCount) {
+        return add(item, incrementCount);
+    }
+
+    /**
+     * Counts the item, replacing the counter with the lowest count when the summary is full.
+     * @param item
+     * @param incrementCount
+     * @return the item which lost its counter, or null
+     */
+    public T offerReturnDropped(T item, int incrementCount) {
+        Counter<T> c = counterMap.get(item);
+        if (c != null) {
+            increment(c, incrementCount);
+            return null;
+        }
+        return insertItem(item, incrementCount);
     }
 
     @Override
     public long estimateCount(T item) {
-        if (dataStructure.contains(item)) {
-            return getBucketForItem(item).frequency;
-        }
-        return 0L;
+        Counter<T> c = counterMap.get(item);
+        return c == null ? 0L : c.frequency;
+    }
+
+    /**
+     * @param item
+     * @return the counter of the item, or null if it is not counted
+     */
+    public Counter<T> getCounter(T item) {
+        return counterMap.get(item);
     }
 
     public boolean contains(T item) {
-        return dataStructure.contains(item);
+        return counterMap.containsKey(item);
     }
 
     @Override
@@ -90,26 +154,48 @@ public class SpaceSaving<T> extends BaseFrequency<T> {
         return elementsCounted;
     }
 
+    /**
+     * @return number of available counters
+     */
+    public int getCapacity() {
+        return counter;
+    }
+
     @Override
     public Set<T> keySet() {
-        return null;
+        return Collections.unmodifiableSet(counterMap.keySet());
     }
 
+    /**
+     * @param k
+     * @return the (at most) k counters with the highest counts, in descending order of count
+     */
+    public List<Counter<T>> topK(int k) {
+        List<Counter<T>> result = new ArrayList<>(Math.min(k, counterMap.size()));
+        for (Bucket<T> b = maxBucket; b != null && result.size() < k; b = b.prev) {
+            for (Counter<T> c = b.first; c != null && result.size() < k; c = c.next) {
+                result.add(c);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the items whose count is above minSupport times the number of elements,
+     * scanning the buckets from the highest count down, so the cost is in the number of results.
+     */
     public List<CountEntry<T>> getFrequentItems(double minSupport) {
         List<CountEntry<T>> result = new ArrayList<CountEntry<T>>();
-        int j = 1;
+        double threshold = minSupport * elementsCounted;
+        guaranteed = true;
 
-        for (Bucket<List<T>> b : dataStructure) {
-            if (((b.frequency - error) > (minSupport * elementsCounted)) && (j <= dataStructure.size())) {
-                for(int i = 0; i < b.item.size(); i++) {
-                    result.add(new CountEntry<T>(b.item.get(i), b.frequency));
-                }
-
-                if ((b.frequency - error) < (minSupport * elementsCounted)) {
+        for (Bucket<T> b = maxBucket; b != null && b.count > threshold; b = b.prev) {
+            for (Counter<T> c = b.first; c != null; c = c.next) {
+                result.add(new CountEntry<T>(c.item, c.frequency));
+                if (c.frequency - c.maxError <= threshold) {
                     guaranteed = false;
                 }
             }
-            j++;
         }
         return result;
     }
@@ -123,122 +209,170 @@ public class SpaceSaving<T> extends BaseFrequency<T> {
         return guaranteed;
     }
 
-
-    private boolean containsItem(T item){
-        Bucket<List<T>> bucket = getBucketForItem(item);
-        return bucket != null;
-    }
-
     /**
-     * <p>Increment the count frequency of the provided item by 1.</p>
-     * <p>
-     * First it checks two thinks.
-     * <li>Is the Bucket which count has to be updated the last bucket?</li>
-     * <li>Is the new frequency of the Bucket the same as the neighbor bucket frequency?</li>
-     * If one of this is true the bucket with the least hits will be deleted and the new item will
-     * get this bucket.<br/>
-     * Otherwise: The item will be added into the neighbor bucket and removed from the original bucket.
-     * </p>
-     * <p>
-     * In the end the whole data structure is sorted
-     * </p>
-     *
-     * @param item The item whose frequency shall be incremented.
-     * @param incrementCount The number that will be added to the item count.
-     */
-    private void incrementCount(T item, long incrementCount) {
-        Bucket<List<T>> firstBucket = getBucketForItem(item);
-        long bucketCount = firstBucket.frequency + incrementCount;
-        boolean replaceOldBucket = false;
-
-        if (dataStructure.indexOf(firstBucket) == dataStructure.size()-1) {
-            replaceOldBucket = true;
-        } else if (dataStructure.get(dataStructure.indexOf(firstBucket)+1).frequency != bucketCount) {
-            replaceOldBucket = true;
-        } else {
-            Bucket<List<T>> neighborBucket = dataStructure.get(dataStructure.indexOf(firstBucket)+1);
-            neighborBucket.item.add(item);
-            firstBucket.item.remove(item);
-        }
-
-        if (replaceOldBucket) {
-            Bucket<List<T>> bucket = dataStructure.get(0);
-            long oldMaxError = bucket.getMaxError();
-            bucket.item.clear();
-            bucket.item.add(item);
-            bucket.frequency += incrementCount;
-            bucket.setMaxError(oldMaxError);
-        } else {
-            firstBucket.frequency = bucketCount;
-        }
-
-        elementsCounted++;
-        sortDataStructure();
+     * Called after the count of a counter was raised, e.g., to track the counter of the last offered item.
+     * @param c the counter
+     */
+    protected void incremented(Counter<T> c) {
     }
 
     /**
      * <p>
-     * This method insert a new, not yet seen item, into the data structure.
-     * <br />
-     * The bucket with the least hits will be cleared and the new item will get this
-     * bucket. Also the frequency will be increment.
-     * <br />
-     * In the last step the whole data structure will be sorted
+     * This method inserts a new, not yet seen item into the data structure.
+     * While counters are left, the item gets a new one. Otherwise it takes over
+     * the first counter with the lowest count, whose count becomes its maximal error.
      * </p>
      * @param item The item that is inserted into the model.
+     * @return the item which lost its counter, or null
      */
-    private void insertItem(T item, long incrementCount) {
-        Bucket<List<T>> bucket = dataStructure.get(0);
-        bucket.item.clear();
-        bucket.item.add(item);
-        bucket.frequency += incrementCount;
-        elementsCounted++;
-        sortDataStructure();
+    private T insertItem(T item, long incrementCount) {
+        T dropped = null;
+        Counter<T> c;
+        if (counterMap.size() < counter) {
+            c = new Counter<>(item);
+            counterMap.put(item, c);
+            attach(c, findBucket(null, 0));
+        } else {
+            c = minBucket.first;
+            dropped = c.item;
+            counterMap.remove(dropped);
+            c.item = item;
+            c.maxError = c.frequency;
+            counterMap.put(item, c);
+        }
+        increment(c, incrementCount);
+        return dropped;
     }
 
     /**
-     * <p>
-     * This method sort the data structure by the frequency.
-     * </p>
+     * Moves the counter to the bucket of its new count. When it is alone in its bucket and no
+     * bucket has the new count, the bucket is updated in place.
      */
-    private void sortDataStructure() {
-        Collections.sort(dataStructure, new Comparator<Bucket<List<T>>>() {
-            @Override
-            public int compare(Bucket<List<T>> o1, Bucket<List<T>> o2) {
-                return Long.valueOf(o1.frequency).compareTo(o2.frequency);
+    private void increment(Counter<T> c, long incrementCount) {
+        elementsCounted += incrementCount;
+        long count = c.frequency + incrementCount;
+        c.frequency = count;
+        Bucket<T> bucket = c.bucket;
+
+        if (bucket.first == c && c.next == null && (bucket.next == null || bucket.next.count > count)) {
+            bucket.count = count;
+        } else {
+            detach(c);
+            Bucket<T> target = findBucket(bucket, count);
+            if (bucket.first == null) {
+                removeBucket(bucket);
             }
-        });
+            attach(c, target);
+        }
+        incremented(c);
     }
 
     /**
-     * <p>
-     * This method returns the bucket which contains the item or null
-     * if the items is in no bucket.
-     * </p>
-     * @param item The item which you search for in all buckets
-     * @return Bucket with the item or null if Element is not enclosed.
+     * @param from bucket to start the search from, with a count below the given one, or null for the first bucket
+     * @param count
+     * @return the bucket of the count, which is created if missing
      */
-    private Bucket<List<T>> getBucketForItem(T item) {
-        for (Bucket<List<T>> b : dataStructure) {
-            if (b.item.contains(item)){
-                return b;
-            }
+    private Bucket<T> findBucket(Bucket<T> from, long count) {
+        Bucket<T> prev = from;
+        Bucket<T> next = from == null ? minBucket : from.next;
+        while (next != null && next.count < count) {
+            prev = next;
+            next = next.next;
+        }
+        if (next != null && next.count == count) {
+            return next;
+        }
+
+        Bucket<T> bucket = spareBuckets.poll();
+        if (bucket == null) {
+            bucket = new Bucket<>();
+        }
+        bucket.count = count;
+        bucket.prev = prev;
+        bucket.next = next;
+        if (prev == null) {
+            minBucket = bucket;
+        } else {
+            prev.next = bucket;
         }
-        return null;
+        if (next == null) {
+            maxBucket = bucket;
+        } else {
+            next.prev = bucket;
+        }
+        return bucket;
+    }
+
+    private void removeBucket(Bucket<T> bucket) {
+        if (bucket.prev == null) {
+            minBucket = bucket.next;
+        } else {
+            bucket.prev.next = bucket.next;
+        }
+        if (bucket.next == null) {
+            maxBucket = bucket.prev;
+        } else {
+            bucket.next.prev = bucket.prev;
+        }
+        bucket.prev = null;
+        bucket.next = null;
+        spareBuckets.push(bucket);
+    }
+
+    private void attach(Counter<T> c, Bucket<T> bucket) {
+        c.bucket = bucket;
+        c.prev = null;
+        c.next = bucket.first;
+        if (bucket.first != null) {
+            bucket.first.prev = c;
+        }
+        bucket.first = c;
+    }
+
+    private void detach(Counter<T> c) {
+        if (c.prev == null) {
+            c.bucket.first = c.next;
+        } else {
+            c.prev.next = c.next;
+        }
+        if (c.next != null) {
+            c.next.prev = c.prev;
+        }
+        c.prev = null;
+        c.next = null;
+        c.bucket = null;
     }
 
-    private class Bucket<T> extends CountEntryWithMaxError<T> {
+    /**
+     * Counter of an item: its frequency is the count and its maxError the error of the count.
+     */
+    public static class Counter<T> extends CountEntryWithMaxError<T> {
         private static final long serialVersionUID = 1L;
 
-        public Bucket(T item, long frequency, long maxError){
-            super(item, frequency, maxError);
+        private transient Bucket<T> bucket;
+        private transient Counter<T> prev;
+        private transient Counter<T> next;
+
+        Counter(T item) {
+            super(item, 0, 0);
         }
 
-        public void setMaxError(long maxError){
-            this.maxError = maxError;
+        public long getCount() {
+            return frequency;
         }
-        public long getMaxError(){
-            return this.maxError;
+
+        public long getError() {
+            return maxError;
         }
     }
+
+    /**
+     * Counters sharing a count.
+     */
+    private static class Bucket<T> {
+        private long count;
+        private Counter<T> first;
+        private Bucket<T> prev;
+        private Bucket<T> next;
+    }
 }
@@ -1,16 +1,23 @@
 package util.load;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Implementation of the "Sticky Sampling" algorithm as described in the paper
  * "Approximate Frequency Counts over Data Streams" written by Gurmeet Singh Manku
  * and Rajeev Motwani
  *
+ * <p>Random numbers are drawn in bulk: instead of a coin per new element, the number of new
+ * elements to skip until the next sampled one is drawn from the geometric distribution, once
+ * per sampled element; and instead of a coin per decrement when the sampling rate changes,
+ * the number of decrements of an entry is drawn at once. Instances are not thread-safe.</p>
+ *
  * @author Benedikt Kulmann
  */
 public class StickySampling<T> extends BaseFrequency<T> {
@@ -43,6 +50,14 @@ public class StickySampling<T> extends BaseFrequency<T> {
      */
     private long windowLength;
 
+    /**
+     * <p>Number of new elements to skip before the next one is sampled, geometrically distributed
+     * with parameter <code>1/samplingRate</code>.</p>
+     */
+    private long skip;
+
+    private final Random random;
+
     /**
      * <p>The data structure which holds all counting information.</p>
      */
@@ -62,6 +77,22 @@ public class StickySampling<T> extends BaseFrequency<T> {
      * @param probabilityOfFailure Probability for an item to fail to fulfill the three quality characteristics of this algorithm. Has to be out of (0,1).
      */
     public StickySampling(double support, double error, double probabilityOfFailure) {
+        this(support, error, probabilityOfFailure, new Random());
+    }
+
+    /**
+     * <p>Creates a new instance of StickySampling, whose sampling is reproducible.</p>
+     *
+     * @param support The threshold whether an element is frequent or not. Has to be out of (0,1).
+     * @param error An epsilon for the threshold. Has to be out of (0,1).
+     * @param probabilityOfFailure Probability for an item to fail to fulfill the three quality characteristics of this algorithm. Has to be out of (0,1).
+     * @param seed Seed of the random numbers
+     */
+    public StickySampling(double support, double error, double probabilityOfFailure, long seed) {
+        this(support, error, probabilityOfFailure, new Random(seed));
+    }
+
+    private StickySampling(double support, double error, double probabilityOfFailure, Random random) {
         super(support);
 
         if (support <= 0 || support >= 1) {
@@ -82,21 +113,25 @@ public class StickySampling<T> extends BaseFrequency<T> {
         this.windowLength = (long)(2 * t);//only on initialization. Later this is calculated by (samplingRate * t)
 
         this.elementsCounted = 0;
-        this.dataStructure = new ConcurrentHashMap<T, CountEntry<T>>();
+        this.dataStructure = new HashMap<T, CountEntry<T>>();
+        this.random = random;
+        this.skip = 0;   // everything is sampled at rate 1
     }
 
     @Override
     public boolean add(T item, long incrementCount) {
         boolean newItem = true;
 
-        if (containsItem(item)) {
-            incrementCount(item, incrementCount);
+        CountEntry<T> entry = dataStructure.get(item);
+        if (entry != null) {
+            entry.frequency += incrementCount;
             newItem = false;
         } else {
             if(sample()) {
                 insertItem(item, incrementCount);
             }
         }
+        elementsCounted++;
         windowCount++;
 
         if (changeOfSamplingRateNeeded()) {
@@ -109,11 +144,8 @@ public class StickySampling<T> extends BaseFrequency<T> {
 
     @Override
     public long estimateCount(T item) {
-        if (dataStructure.containsKey(item)) {
-            return dataStructure.get(item).frequency;
-        } else {
-            return 0L;
-        }
+        CountEntry<T> entry = dataStructure.get(item);
+        return entry == null ? 0L : entry.frequency;
     }
 
     public boolean contains(T item) {
@@ -153,12 +185,32 @@ public class StickySampling<T> extends BaseFrequency<T> {
     }
 
     /**
-     * <p>Decision whether a new item should be put into the data structure.</p>
+     * <p>Decision whether a new item should be put into the data structure:
+     * the new items between two sampled ones are skipped.</p>
      *
      * @return Whether an item should be put into the data structure
      */
     private boolean sample() {
-        return Math.random() <= 1 / (double)samplingRate;
+        if (skip > 0) {
+            skip--;
+            return false;
+        }
+        skip = drawSkip();
+        return true;
+    }
+
+    /**
+     * <p>Draws the number of failures before the first success of Bernoulli trials with
+     * probability <code>1/samplingRate</code>, by inversion of the geometric distribution.</p>
+     *
+     * @return Number of new items to skip
+     */
+    private long drawSkip() {
+        if (samplingRate == 1) {
+            return 0;
+        }
+        double u = 1 - random.nextDouble();   // in (0, 1]
+        return (long) Math.floor(Math.log(u) / Math.log(1 - 1 / (double) samplingRate));
     }
 
     /**
@@ -180,6 +232,7 @@ public class StickySampling<T> extends BaseFrequency<T> {
         windowCount = 0;
         samplingRate *= 2;
         windowLength = (long)(samplingRate * t);
+        skip = drawSkip();   // the geometric distribution is memoryless, so a fresh skip is fair
     }
 
     /**
@@ -188,80 +241,23 @@ public class StickySampling<T> extends BaseFrequency<T> {
      * <p>This transforms the data structure such that it contains elements
      * which would also have been sampled with the new sampling rate, only.</p>
      *
+     * <p>An entry is decremented once per successful toss of an unbiased coin until the first failure.
+     * The number of successes is the number of trailing zeros of a random long, whose bits are
+     * independent fair coins, so one random number serves a whole entry.</p>
+     *
      * <p>The modification of the sampling rate itself is performed by {@link #changeSamplingRate()}.</p>
      */
     private void adaptNewSamplingRate() {
-        for (T item : dataStructure.keySet()) {
-            while(tossCoin()) {
-                decrementCount(item);
-                if(frequencyIsZero(item)) {
-                    removeItem(item);
-                    break;
-                }
+        Iterator<CountEntry<T>> it = dataStructure.values().iterator();
+        while (it.hasNext()) {
+            CountEntry<T> entry = it.next();
+            entry.frequency -= Long.numberOfTrailingZeros(random.nextLong());
+            if (entry.frequency <= 0) {
+                it.remove();
             }
         }
     }
 
-    /**
-     * <p>50:50 random event</p>
-     *
-     * @return Result of 50:50 random event
-     */
-    private boolean tossCoin() {
-        return Math.random() < 0.5;
-    }
-
-    /**
-     * <p>Removes the {@link CountEntry} associated with the provided item from the internal
-     * data structure.</p>
-     *
-     * @param itemToRemove The item whose {@link CountEntry} shall be removed
-     */
-    private void removeItem(T itemToRemove) {
-        dataStructure.remove(itemToRemove);
-    }
-
-    /**
-     * <p>Returns whether the internal data structure contains a counter for the provided item.</p>
-     *
-     * @param item The item in question
-     * @return True if the internal data structure contains a counter for the provided item, false otherwise.
-     */
-    private boolean containsItem(T item) {
-        return dataStructure.containsKey(item);
-    }
-
-    /**
-     * <p>Increment the count frequency of the provided item by 1.</p>
-     *
-     * @param item The item whose frequency shall be incremented by 1.
-     */
-    private void incrementCount(T item, long incrementCount) {
-        dataStructure.get(item).frequency += incrementCount;
-        elementsCounted++;
-    }
-
-    /**
-     * <p>Decrements the count frequency of the provided item by 1. Used within the
-     * {@link StickySampling#adaptNewSamplingRate()} method of the algorithm.</p>
-     *
-     * @param item The item whose count frequency shall be decremented by 1.
-     */
-    private void decrementCount(T item) {
-        dataStructure.get(item).frequency--;
-    }
-
-    /**
-     * <p>Returns whether the count frequency of the provided item corresponds to 0
-     * (i.e. frequency == 0 or item doesn't exist within the internal data structure).</p>
-     *
-     * @param item The item in question.
-     * @return true if the count frequency of the provided item corresponds to 0
-     */
-    private boolean frequencyIsZero(T item) {
-        return !dataStructure.containsKey(item) || dataStructure.get(item).frequency == 0;
-    }
-
     /**
      * Inserts the provided item into the internal data structure with an initial count of 1.
      *
@@ -269,7 +265,6 @@ public class StickySampling<T> extends BaseFrequency<T> {
      */
     private void insertItem(T item, long incrementCount) {
         dataStructure.put(item, new CountEntry<T>(item, incrementCount));
-        elementsCounted++;
     }
 
     @Override
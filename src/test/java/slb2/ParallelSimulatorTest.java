@@ -0,0 +1,79 @@
+package slb2;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.Test;
+
+import slb2.partitioners.AbstractPartitioner;
+import slb2.partitioners.HashPartitioner;
+import slb2.partitioners.HashedKey;
+import slb2.partitioners.PartitionerFactory;
+import slb2.reader.DataType;
+
+public class ParallelSimulatorTest {
+    private static final int NUM_SOURCES = 2;
+    private static final int NUM_SERVERS = 4;
+
+    @Test(timeout = 60000)
+    public void testFailureWhileTheReaderWaitsForAQueue() throws Exception {
+        assertWorkerFailureIsThrown(10, 200000);
+    }
+
+    @Test(timeout = 60000)
+    public void testFailureAfterACheckpoint() throws Exception {
+        assertWorkerFailureIsThrown(600000, 1500000);
+    }
+
+    /**
+     * @param failAt keys routed by an upstream operator before it fails
+     * @param numKeys keys of the stream
+     */
+    private void assertWorkerFailureIsThrown(final int failAt, int numKeys) throws Exception {
+        File in = zipfFile(numKeys);
+        File out = File.createTempFile("parallel", ".csv");
+        try {
+            PartitionerFactory factory = new PartitionerFactory(1, NUM_SERVERS, 5) {
+                @Override
+                public AbstractPartitioner create() {
+                    return new HashPartitioner(NUM_SERVERS) {
+                        private int routed;
+
+                        @Override
+                        public int partition(HashedKey key) throws Exception {
+                            return ++routed == failAt ? NUM_SERVERS : super.partition(key);   // no such server
+                        }
+                    };
+                }
+            };
+            new ParallelSimulator(NUM_SOURCES, NUM_SERVERS, in.getPath(), out.getPath(), factory, DataType.ZIPF)
+                    .start();
+            fail("the failure of the upstream operator is not thrown");
+        } catch (ExecutionException expected) {
+            assertTrue(expected.getCause() instanceof ArrayIndexOutOfBoundsException);
+            assertTrue(!Thread.currentThread().isInterrupted());
+        } finally {
+            in.delete();
+            out.delete();
+        }
+    }
+
+    private static File zipfFile(int numKeys) throws IOException {
+        File file = File.createTempFile("zipf", ".csv");
+        PrintWriter writer = new PrintWriter(file);
+        for (int i = 0; i < numKeys / 10; i++) {
+            StringBuilder line = new StringBuilder();
+            for (int j = 0; j < 10; j++) {
+                line.append(j == 0 ? "" : ",").append((i * 10 + j) % 1000);
+            }
+            writer.println(line);
+        }
+        writer.close();
+        return file;
+    }
+}
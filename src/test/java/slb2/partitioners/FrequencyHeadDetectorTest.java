@@ -0,0 +1,73 @@
+package slb2.partitioners;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import util.load.CountMinSketch;
+import util.load.LossyCounting;
+
+public class FrequencyHeadDetectorTest {
+    private static final float PROBABILITY = 0.05f;
+
+    @Test
+    public void testHeadMatchesEstimates() {
+        LossyCounting<String> frequency = new LossyCounting<>(PROBABILITY * 0.1);
+        FrequencyHeadDetector detector = new FrequencyHeadDetector(frequency, PROBABILITY, 1);
+        Random random = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            int rank = (int) Math.floor(Math.pow(random.nextDouble(), 4) * 1000);
+            String key = "k" + rank;
+
+            boolean inHead = detector.offerAndCheck(key);
+            assertEquals(frequency.estimateCount(key) / (float) (i + 1) > PROBABILITY, inHead);
+            assertEquals(inHead, detector.isHead(key));
+            assertTrue(detector.contains(key));
+
+            int headSize = 0;
+            long headCount = 0;
+            long topCount = 0;
+            for (String k : frequency.keySet()) {
+                long count = frequency.estimateCount(k);
+                if (detector.isHead(k)) {
+                    headSize++;
+                    headCount += count;
+                }
+                topCount = Math.max(topCount, count);
+            }
+            assertEquals(headSize, detector.getHeadSize());
+            assertEquals(headCount / (double) (i + 1), detector.getHeadProbability(), 1e-9);
+            assertEquals(topCount / (float) (i + 1), detector.getTopFrequency(), 1e-6);
+        }
+        assertFalse(detector.isHead("k999"));
+        assertEquals(20000, detector.getTotalItems());
+    }
+
+    @Test
+    public void testCountMinIsSizedFromTheError() {
+        HeadDetectorFactory countMin = new HeadDetectorFactory(HeadDetectorFactory.COUNT_MIN);
+        FrequencyHeadDetector detector = (FrequencyHeadDetector) countMin.create(0.001f);
+        assertTrue(((CountMinSketch<String>) detector.getFrequency()).getWidth() >= Math.E / 0.0001);
+        try {
+            countMin.create(1e-6f);   // holistic delta, e / 1e-7 counters per row
+            fail("the sketch would not bound the error");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void testHolisticTakesTheDeltaOfTheFactory() {
+        assertTrue(new PartitionerFactory(7, 4, 5, 0.0001f, HeadDetectorFactory.COUNT_MIN).create()
+                instanceof HolisticPartitionerForString);
+        try {
+            new PartitionerFactory(7, 4, 5, 1e-6f, HeadDetectorFactory.COUNT_MIN);
+            fail("the count-min detector cannot bound the error of this delta");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+}
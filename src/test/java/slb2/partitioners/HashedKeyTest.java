@@ -0,0 +1,33 @@
+package slb2.partitioners;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class HashedKeyTest {
+
+    @Test
+    public void testChoicesAreDistinctServers() {
+        HashedKey key = new HashedKey();
+        for (int numServers = 2; numServers <= 64; numServers++) {
+            for (int k = 0; k < 1000; k++) {
+                key.set("key-" + k);
+                assertTrue(key.choice(0, numServers) != key.choice(1, numServers));
+                boolean[] seen = new boolean[numServers];
+                for (int i = 0; i < numServers; i++) {
+                    int server = key.choice(i, numServers);
+                    assertTrue(!seen[server]);
+                    seen[server] = true;
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testFirstChoiceIsTheHash() {
+        HashedKey key = new HashedKey().set(42L);
+        assertEquals((key.getHash1() & Long.MAX_VALUE) % 10, key.choice(0, 10));
+        assertEquals(0, key.choice(3, 1));
+    }
+}
@@ -0,0 +1,56 @@
+package slb2.partitioners;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import util.load.SpaceSaving.Counter;
+
+public class HeadTrackerTest {
+    private static final int CAPACITY = 100;
+    private static final float PROBABILITY = 2 / (float) (10 * 5);
+
+    @Test
+    public void testHeadMatchesTopKScan() {
+        HeadTracker tracker = new HeadTracker(CAPACITY, PROBABILITY);
+        Random random = new Random(42);
+        for (int i = 0; i < 50000; i++) {
+            // skewed keys, with the hot key changing half way to make keys leave the head
+            int rank = (int) Math.floor(Math.pow(random.nextDouble(), 3) * 1000);
+            String key = (i < 25000 ? "a" : "b") + rank;
+
+            boolean inHead = tracker.offerAndCheck(key);
+
+            double pHead = 0;
+            int headSize = 0;
+            boolean expected = false;
+            List<Counter<String>> counters = tracker.topK(CAPACITY);
+            for (Counter<String> counter : counters) {
+                float count = counter.getCount();
+                float error = counter.getError();
+                if ((count + error) / tracker.getTotalItems() > PROBABILITY) {
+                    pHead += (counter.getCount() + counter.getError()) / (double) tracker.getTotalItems();
+                    headSize++;
+                    if (counter.getItem().equals(key)) {
+                        expected = true;
+                    }
+                }
+            }
+            assertEquals("membership of " + key + " at " + i, expected, inHead);
+            assertEquals("head size at " + i, headSize, tracker.getHeadSize());
+            assertEquals("head probability at " + i, pHead, tracker.getHeadProbability(), 1e-9);
+
+            Counter<String> top = counters.get(0);
+            for (Counter<String> counter : counters) {   // ties on the count go to the highest error
+                if (counter.getCount() == top.getCount() && counter.getError() > top.getError()) {
+                    top = counter;
+                }
+            }
+            assertEquals((top.getCount() + top.getError()) / (float) tracker.getTotalItems(),
+                    tracker.getTopFrequency(), 1e-6);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package slb2.partitioners;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class LoadTrackerTest {
+    private static final int NUM_SERVERS = 4;
+    private static final long HALF_LIFE = 1000;
+
+    @Test
+    public void testCumulativeCountsEverything() {
+        LoadTracker tracker = new CumulativeLoadTracker(NUM_SERVERS);
+        for (int i = 0; i < 10000; i++) {
+            tracker.increment(i % 3);
+        }
+        assertEquals(3334, tracker.getLoads()[0]);
+        assertEquals(0, tracker.getLoads()[3]);
+        assertEquals(10000, tracker.getTotalLoad());
+    }
+
+    @Test
+    public void testIdleServerIsNotFlooded() {
+        // server 3 is idle for a long time, then every tuple goes to the least loaded server
+        int cumulativeFlood = flood(new CumulativeLoadTracker(NUM_SERVERS));
+        int decayingFlood = flood(new DecayingLoadTracker(NUM_SERVERS, HALF_LIFE));
+        assertEquals(100000, cumulativeFlood);
+        assertTrue(decayingFlood < HALF_LIFE);
+    }
+
+    @Test
+    public void testDecayHalvesTheLoads() {
+        DecayingLoadTracker tracker = new DecayingLoadTracker(NUM_SERVERS, HALF_LIFE);
+        for (int i = 0; i < HALF_LIFE; i++) {
+            tracker.increment(i % 2);
+        }
+        assertEquals(HALF_LIFE / 4, tracker.getLoads()[0]);
+        assertEquals(HALF_LIFE / 4, tracker.getLoads()[1]);
+        assertEquals(HALF_LIFE / 2, tracker.getTotalLoad());
+    }
+
+    /**
+     * @return number of consecutive tuples sent to the idle server once it is back
+     */
+    private static int flood(LoadTracker tracker) {
+        for (int i = 0; i < 300000; i++) {
+            tracker.increment(i % (NUM_SERVERS - 1));
+        }
+        int flood = 0;
+        while (true) {
+            long[] load = tracker.getLoads();
+            int min = 0;
+            for (int i = 1; i < NUM_SERVERS; i++) {
+                if (load[i] < load[min]) {
+                    min = i;
+                }
+            }
+            if (min != NUM_SERVERS - 1) {
+                return flood;
+            }
+            tracker.increment(min);
+            flood++;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package slb2.partitioners;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Least loaded server of all servers: {@link MinLoadTree} against the linear scan it replaced.
+ * Every operation sends a tail tuple to a random server and a head tuple to the least loaded one.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MinLoadBenchmark {
+
+    private static final int RANDOM_SERVERS = 1 << 16;   // power of two
+
+    @Param({"16", "128", "1024", "4096"})
+    private int numServers;
+
+    private long[] scanLoad;
+    private long[] treeLoad;
+    private MinLoadTree tree;
+    private int[] randomServers;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        scanLoad = new long[numServers];
+        treeLoad = new long[numServers];
+        tree = new MinLoadTree(treeLoad);
+        randomServers = new int[RANDOM_SERVERS];
+        Random random = new Random(42);
+        for (int i = 0; i < RANDOM_SERVERS; i++) {
+            randomServers[i] = random.nextInt(numServers);
+        }
+    }
+
+    @Benchmark
+    public int linearScan() {
+        scanLoad[randomServers[next++ & (RANDOM_SERVERS - 1)]]++;
+        int min = 0;
+        for (int i = 1; i < numServers; i++) {
+            if (scanLoad[i] < scanLoad[min]) {
+                min = i;
+            }
+        }
+        scanLoad[min]++;
+        return min;
+    }
+
+    @Benchmark
+    public int tournamentTree() {
+        int server = randomServers[next++ & (RANDOM_SERVERS - 1)];
+        treeLoad[server]++;
+        tree.update(server);
+        int min = tree.getLeastLoaded();
+        treeLoad[min]++;
+        tree.update(min);
+        return min;
+    }
+}
@@ -0,0 +1,52 @@
+package slb2.partitioners;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class MinLoadTreeTest {
+
+    @Test
+    public void testMatchesLinearScan() {
+        Random random = new Random(42);
+        for (int numServers : new int[]{1, 2, 5, 16, 37}) {
+            long[] load = new long[numServers];
+            MinLoadTree tree = new MinLoadTree(load);
+            for (int i = 0; i < 20000; i++) {
+                int server = random.nextInt(numServers);
+                load[server] += random.nextInt(3);
+                tree.update(server);
+                if (i % 1000 == 0) {
+                    for (int s = 0; s < numServers; s++) {
+                        load[s] >>= 1;
+                    }
+                    tree.rebuild();
+                }
+                assertEquals(leastLoaded(load), tree.getLeastLoaded());
+            }
+        }
+    }
+
+    @Test
+    public void testTrackerKeepsTreeUpToDate() {
+        LoadTracker tracker = new DecayingLoadTracker(7, 100);
+        Random random = new Random(1);
+        for (int i = 0; i < 10000; i++) {
+            int server = i % 3 == 0 ? tracker.getLeastLoaded() : random.nextInt(7);
+            assertEquals(leastLoaded(tracker.getLoads()), tracker.getLeastLoaded());
+            tracker.increment(server);
+        }
+    }
+
+    private static int leastLoaded(long[] load) {
+        int min = 0;
+        for (int i = 1; i < load.length; i++) {
+            if (load[i] < load[min]) {
+                min = i;
+            }
+        }
+        return min;
+    }
+}
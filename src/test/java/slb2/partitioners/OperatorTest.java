@@ -0,0 +1,60 @@
+package slb2.partitioners;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import com.clearspring.analytics.stream.cardinality.CardinalityMergeException;
+
+public class OperatorTest {
+    private static final int NUM_SERVERS = 8;
+
+    @Test
+    public void testTotalCardinalityFromDownstreamOperators() throws CardinalityMergeException {
+        CardinalityFactory exact = new CardinalityFactory(CardinalityFactory.EXACT);
+        Operator[] downstream = new Operator[NUM_SERVERS];
+        for (int i = 0; i < NUM_SERVERS; i++) {
+            downstream[i] = new Operator(exact.create());
+        }
+        AbstractPartitioner partitioner = new PKG_Partitioner(NUM_SERVERS);
+        partitioner.trackCardinality(exact.create());
+        Operator upstream = new Operator(partitioner, downstream);
+        for (int i = 0; i < 100000; i++) {
+            upstream.processElement("key-" + i % 5000);
+        }
+
+        // PKG sends a key to two servers, counted once in the total
+        assertEquals(5000, Operator.getTotalCardinality(downstream));
+        assertEquals(5000, partitioner.getTotalCardinality());
+    }
+
+    @Test
+    public void testStreamCounterMatchesMergedCounters() throws CardinalityMergeException {
+        CardinalityFactory hll = new CardinalityFactory(CardinalityFactory.HLL_PLUS, 14);
+        Operator[] downstream = new Operator[NUM_SERVERS];
+        for (int i = 0; i < NUM_SERVERS; i++) {
+            downstream[i] = new Operator(hll.create());
+        }
+        Operator stream = new Operator(hll.create());
+        Operator upstream = new Operator(new PKG_Partitioner(NUM_SERVERS), downstream);
+        for (int i = 0; i < 100000; i++) {
+            upstream.processElement("key-" + i % 20000);
+            stream.receiveElement(upstream.getHashedKey());
+        }
+
+        // same hashes in counters of the same kind
+        assertEquals(Operator.getTotalCardinality(downstream), stream.getCardinality());
+    }
+
+    @Test
+    public void testPartitionerDoesNotCountByDefault() throws Exception {
+        AbstractPartitioner partitioner = new HashPartitioner(NUM_SERVERS);
+        partitioner.partition("key");
+        try {
+            partitioner.getTotalCardinality();
+            fail("keys are not counted");
+        } catch (IllegalStateException expected) {
+        }
+    }
+}
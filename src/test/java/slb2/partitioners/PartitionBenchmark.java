@@ -0,0 +1,146 @@
+package slb2.partitioners;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of partition() per tuple, for every partitioner of {@link PartitionerFactory}, over pre-generated streams.
+ * <p>
+ * The streams are Zipf streams of the given skew ("zipf-0.8", ...), whose keys are numbers as read from the
+ * Zipf data set, and a word stream ("words"): the words of the file given by the system property words.file,
+ * or else synthetic words of Zipf 1.0 frequencies. The int-keyed holistic partitioner (type 8) gets the rank of
+ * every key as an Integer. A partitioner lives for a whole trial, so its summaries fill up as in a simulation.
+ * <p>
+ * The allocation rate comes from the gc profiler, e.g.:
+ * java -cp target/test-classes:&lt;test classpath&gt; org.openjdk.jmh.Main PartitionBenchmark -prof gc -p simulatorType=3,8
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class PartitionBenchmark {
+
+    private static final int STREAM_LENGTH = 1 << 20;   // power of two, replayed in a loop
+    private static final int THRESHOLD = 5;             // frequency threshold of Head
+    private static final float DELTA = 0.0001f;         // frequency threshold of heavy hitters
+
+    // 1 Hash, 2 PKG, 3 D-Choices, 4 W-Choices, 5 RR, 6 Shuffle, 7 Holistic, 8 Holistic for int keys
+    @Param({"1", "2", "3", "4", "5", "6", "7", "8"})
+    private int simulatorType;
+
+    @Param({"zipf-0.8", "zipf-1.2", "zipf-2.0", "words"})
+    private String stream;
+
+    @Param({"10000", "1000000"})
+    private int numKeys;
+
+    @Param({"16", "128", "1024"})
+    private int numServers;
+
+    private AbstractPartitioner partitioner;
+    private Object[] keys;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        String[] vocabulary;
+        double z;
+        if (stream.equals("words")) {
+            vocabulary = words(numKeys);
+            z = 1.0;
+        } else if (stream.startsWith("zipf-")) {
+            vocabulary = new String[numKeys];
+            for (int i = 0; i < numKeys; i++) {
+                vocabulary[i] = String.valueOf(i + 1);
+            }
+            z = Double.parseDouble(stream.substring("zipf-".length()));
+        } else {
+            throw new IllegalArgumentException("Unknown stream: " + stream);
+        }
+
+        int[] ranks = zipfRanks(vocabulary.length, z, new Random(42));
+        keys = new Object[STREAM_LENGTH];
+        for (int i = 0; i < STREAM_LENGTH; i++) {
+            keys[i] = simulatorType == 8 ? Integer.valueOf(ranks[i]) : vocabulary[ranks[i]];
+        }
+        partitioner = new PartitionerFactory(simulatorType, numServers, THRESHOLD, DELTA).create();
+        next = 0;
+    }
+
+    @Benchmark
+    public int partition() throws Exception {
+        return partitioner.partition(keys[next++ & (STREAM_LENGTH - 1)]);
+    }
+
+    /**
+     * @return Zipf ranks in [0, numKeys) of a stream of STREAM_LENGTH tuples
+     */
+    private static int[] zipfRanks(int numKeys, double z, Random random) {
+        double[] cdf = new double[numKeys];
+        double sum = 0;
+        for (int i = 0; i < numKeys; i++) {
+            sum += 1 / Math.pow(i + 1, z);
+            cdf[i] = sum;
+        }
+        int[] ranks = new int[STREAM_LENGTH];
+        for (int i = 0; i < STREAM_LENGTH; i++) {
+            int rank = Arrays.binarySearch(cdf, random.nextDouble() * sum);
+            ranks[i] = Math.min(rank < 0 ? -rank - 1 : rank, numKeys - 1);
+        }
+        return ranks;
+    }
+
+    /**
+     * @return distinct words, from the file of the system property words.file if set, in order of appearance
+     */
+    private static String[] words(int numKeys) throws IOException {
+        String file = System.getProperty("words.file");
+        if (file != null) {
+            List<String> words = new ArrayList<>();
+            Set<String> seen = new HashSet<>();
+            for (String line : Files.readAllLines(Paths.get(file), StandardCharsets.UTF_8)) {
+                for (String word : line.split(" ")) {
+                    if (!word.isEmpty() && seen.add(word) && words.size() < numKeys) {
+                        words.add(word);
+                    }
+                }
+            }
+            return words.toArray(new String[0]);
+        }
+        String[] words = new String[numKeys];
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < numKeys; i++) {   // base-26 spelling of the rank: short words are the frequent ones
+            sb.setLength(0);
+            int n = i;
+            do {
+                sb.append((char) ('a' + n % 26));
+                n /= 26;
+            } while (n > 0);
+            words[i] = sb.toString();
+        }
+        return words;
+    }
+}
@@ -0,0 +1,35 @@
+package slb2.partitioners;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class RR_PartitionerTest {
+    private static final int NUM_SERVERS = 8;
+    private static final int THRESHOLD = 5;
+
+    @Test
+    public void testTailKeyGoesToTheLeastLoadedCandidate() throws Exception {
+        LoadTracker loads = new CumulativeLoadTracker(NUM_SERVERS);
+        RR_Partitioner partitioner = new RR_Partitioner(NUM_SERVERS, THRESHOLD,
+                new HeadDetectorFactory(HeadDetectorFactory.SPACE_SAVING), loads);
+        for (int i = 0; i < 10000; i++) {   // distinct keys, so that a new key is in the tail
+            partitioner.partition("warm-up-" + i);
+        }
+
+        String key = "tail";
+        HashedKey hashedKey = new HashedKey().set(key);
+        int first = hashedKey.choice(0, NUM_SERVERS);
+        int second = hashedKey.choice(1, NUM_SERVERS);
+
+        for (int i = 0; i < 100000; i++) {
+            loads.increment(first);
+        }
+        assertEquals(second, partitioner.partition(key));
+
+        for (int i = 0; i < 200000; i++) {
+            loads.increment(second);
+        }
+        assertEquals(first, partitioner.partition(key));
+    }
+}
@@ -0,0 +1,116 @@
+package slb2.partitioners;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+import org.junit.Test;
+
+public class RoutingTableTest {
+
+    @Test
+    public void testLeastLoadedAndAverageLoad() {
+        int numServers = 100;   // two longs per server set
+        long[] load = new long[numServers];
+        for (int i = 0; i < numServers; i++) {
+            load[i] = 1000 - i;
+        }
+        RoutingTable table = new RoutingTable(numServers);
+        for (int k = 0; k < 1000; k++) {   // enough keys to grow the table
+            String key = "key-" + k;
+            table.put(key, k % numServers);
+            table.put(key, 70);
+            table.put(key, 70);
+        }
+        assertEquals(1000, table.size());
+        assertFalse(table.contains("key-1000"));
+        assertEquals(-1, table.findLeastLoaded("key-1000", load));
+        assertEquals(-1, table.getAverageLoad("key-1000", load));
+
+        assertTrue(table.contains("key-5"));
+        assertEquals(2, table.getServerCount("key-5"));
+        assertEquals(70, table.findLeastLoaded("key-5", load));
+        assertEquals((load[5] + load[70]) / 2, table.getAverageLoad("key-5", load));
+
+        assertEquals(1, table.getServerCount("key-70"));
+        assertEquals(99, table.findLeastLoaded("key-99", load));
+
+        load[5] = 0;
+        assertEquals(5, table.findLeastLoaded("key-5", load));
+        load[70] = 0;
+        assertEquals(5, table.findLeastLoaded("key-5", load));   // lowest server on ties
+    }
+
+    @Test
+    public void testEvict() {
+        long[] load = new long[8];
+        RoutingTable table = new RoutingTable(load.length);
+        for (int k = 0; k < 1000; k++) {
+            table.setTime(k);
+            table.put(k, k % 8);
+            table.put(k, (k + 1) % 8);
+        }
+        Predicate<Object> odd = new Predicate<Object>() {
+            @Override
+            public boolean test(Object key) {
+                return (Integer) key % 2 == 1;
+            }
+        };
+        assertEquals(500, table.evict(odd, 0));
+        assertEquals(500, table.size());
+        assertEquals(500, table.getEvictions());
+        assertEquals(500, table.getReclaimedReplicas());
+        for (int k = 0; k < 1000; k++) {
+            assertEquals(k % 2 == 0, table.contains(k));   // the remaining keys are still reachable
+        }
+
+        table.setTime(1000);
+        table.findLeastLoaded(0, load);
+        assertEquals(449, table.evict(odd, 900));          // keys 900 .. 998 were used late enough, key 0 just now
+        assertTrue(table.contains(0));
+        assertEquals(-1, table.findLeastLoaded(2, load));
+        assertTrue(table.contains(998));
+        assertEquals(51, table.size());
+    }
+
+    @Test
+    public void testIntTableMatchesObjectTable() {
+        long[] load = new long[70];   // two longs per server set
+        RoutingTable table = new RoutingTable(load.length);
+        IntRoutingTable intTable = new IntRoutingTable(load.length);
+        for (int k = 0; k < 3000; k++) {
+            load[k % load.length] += k;
+            table.setTime(k);
+            intTable.setTime(k);
+            table.put(k, k % load.length);
+            intTable.put(k, k % load.length);
+            table.put(k / 3, k % 7);
+            intTable.put(k / 3, k % 7);
+        }
+        IntPredicate third = new IntPredicate() {
+            @Override
+            public boolean test(int key) {
+                return key % 3 == 0;
+            }
+        };
+        Predicate<Object> boxedThird = new Predicate<Object>() {
+            @Override
+            public boolean test(Object key) {
+                return third.test((Integer) key);
+            }
+        };
+        assertEquals(table.evict(boxedThird, 1000), intTable.evict(third, 1000));
+        assertEquals(table.size(), intTable.size());
+        assertEquals(table.getReclaimedReplicas(), intTable.getReclaimedReplicas());
+        for (int k = 0; k < 3000; k++) {
+            assertEquals(table.getServerCount(k), intTable.getServerCount(k));
+            assertEquals(table.findLeastLoaded(k, load), intTable.findLeastLoaded(k, load));
+            assertEquals(table.getAverageLoad(k, load), intTable.getAverageLoad(k, load));
+        }
+        assertTrue(intTable.getMemoryFootprint() > 0);
+        assertEquals(table.getMemoryFootprint(), intTable.getMemoryFootprint());
+    }
+}
@@ -0,0 +1,162 @@
+package util.cardinality;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.clearspring.analytics.stream.cardinality.CardinalityMergeException;
+
+/**
+ * Cost of {@link HyperLogLog} and {@link HyperLogLogPlus} operations at precision p.
+ * <p>
+ * offer and offerHashed are measured on sketches in normal mode, the mode a sketch of a simulation is in
+ * after its first few thousand keys. sparseOfferHashed offers to a sketch which stays in sparse mode, as the sketch
+ * of a server of the tail with m / 4 distinct keys, so its temp list is sorted and merged over and over.
+ * sparseToNormal fills a new sparse sketch (sp = 25) with distinct keys
+ * until it converts to normal mode. addAll, merge and cardinality work on sketches of FULL_CARDINALITY keys.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class CardinalityBenchmark {
+
+    private static final int NUM_KEYS = 1 << 16;          // power of two, replayed in a loop
+    private static final int FULL_CARDINALITY = 1 << 20;
+    private static final int SPARSE_PRECISION = 25;
+
+    @Param({"10", "14", "18", "24"})
+    private int p;
+
+    private String[] keys;
+    private long[] hashes;
+    private int next;
+
+    private HyperLogLog hll;
+    private HyperLogLogPlus hllPlus;
+    private HyperLogLogPlus sparseHllPlus;
+    private int sparseKeys;     // power of two, few enough keys to stay in sparse mode
+    private HyperLogLog fullHll;
+    private HyperLogLog otherHll;
+    private HyperLogLogPlus fullHllPlus;
+    private HyperLogLogPlus otherHllPlus;
+    private long[] sparseHashes;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        keys = new String[NUM_KEYS];
+        hashes = new long[NUM_KEYS];
+        for (int i = 0; i < NUM_KEYS; i++) {
+            keys[i] = String.valueOf(random.nextInt(Integer.MAX_VALUE));
+            hashes[i] = MurmurHash.getInstance().hash64(keys[i]);
+        }
+        hll = new HyperLogLog(p);
+        hllPlus = new HyperLogLogPlus(p);
+        sparseHllPlus = new HyperLogLogPlus(p, SPARSE_PRECISION);
+        sparseKeys = Math.min(NUM_KEYS, (1 << p) / 4);
+
+        fullHll = new HyperLogLog(p);
+        otherHll = new HyperLogLog(p);
+        fullHllPlus = new HyperLogLogPlus(p);
+        otherHllPlus = new HyperLogLogPlus(p);
+        for (int i = 0; i < FULL_CARDINALITY; i++) {
+            long hashed = random.nextLong();
+            fullHll.offerHashed(hashed);
+            fullHllPlus.offerHashed(hashed);
+            hashed = random.nextLong();
+            otherHll.offerHashed(hashed);
+            otherHllPlus.offerHashed(hashed);
+        }
+
+        // a sparse sketch converts once its sparse set exceeds 0.75 m, so m distinct keys are always enough
+        sparseHashes = new long[1 << p];
+        for (int i = 0; i < sparseHashes.length; i++) {
+            sparseHashes[i] = random.nextLong();
+        }
+        next = 0;
+    }
+
+    @Benchmark
+    public boolean hllOffer() {
+        return hll.offer(keys[next++ & (NUM_KEYS - 1)]);
+    }
+
+    @Benchmark
+    public boolean hllOfferHashed() {
+        return hll.offerHashed(hashes[next++ & (NUM_KEYS - 1)]);
+    }
+
+    @Benchmark
+    public boolean hllPlusOffer() {
+        return hllPlus.offer(keys[next++ & (NUM_KEYS - 1)]);
+    }
+
+    @Benchmark
+    public boolean hllPlusOfferHashed() {
+        return hllPlus.offerHashed(hashes[next++ & (NUM_KEYS - 1)]);
+    }
+
+    @Benchmark
+    public boolean sparseOfferHashed() {
+        return sparseHllPlus.offerHashed(hashes[next++ & (sparseKeys - 1)]);
+    }
+
+    /**
+     * @return the sketch, in normal mode, after offering keys until it left sparse mode
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public HyperLogLogPlus sparseToNormal() {
+        HyperLogLogPlus sparse = new HyperLogLogPlus(p, SPARSE_PRECISION);
+        for (long hashed : sparseHashes) {
+            sparse.offerHashed(hashed);
+        }
+        return sparse;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public HyperLogLog hllAddAll() throws CardinalityMergeException {
+        fullHll.addAll(otherHll);
+        return fullHll;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public HyperLogLogPlus hllPlusAddAll() throws CardinalityMergeException {
+        fullHllPlus.addAll(otherHllPlus);
+        return fullHllPlus;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public IRichCardinality hllPlusMerge() throws CardinalityMergeException {
+        return fullHllPlus.merge(otherHllPlus);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long hllCardinality() {
+        return fullHll.cardinality();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long hllPlusCardinality() {
+        return fullHllPlus.cardinality();
+    }
+}
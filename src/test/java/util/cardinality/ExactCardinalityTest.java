@@ -0,0 +1,54 @@
+package util.cardinality;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.clearspring.analytics.stream.cardinality.CardinalityMergeException;
+
+public class ExactCardinalityTest {
+
+    @Test
+    public void testCountsDistinctKeys() {
+        ExactCardinality exact = new ExactCardinality();
+        for (int n = 0; n < 3; n++) {
+            for (int i = 0; i < 100000; i++) {
+                exact.offer("key-" + i);
+            }
+        }
+        assertEquals(100000, exact.cardinality());
+        assertTrue(exact.offerHashed(0L));
+        assertFalse(exact.offerHashed(0L));
+        assertEquals(100001, exact.cardinality());
+    }
+
+    @Test
+    public void testMergeCountsCommonKeysOnce() throws CardinalityMergeException {
+        ExactCardinality a = new ExactCardinality();
+        ExactCardinality b = new ExactCardinality();
+        for (int i = 0; i < 1000; i++) {
+            a.offer(i);
+            b.offer(i + 500);
+        }
+        assertEquals(1500, a.merge(b).cardinality());
+        assertEquals(1000, a.cardinality());
+    }
+
+    @Test
+    public void testSparseFootprintGrowsWithKeys() {
+        HyperLogLogPlus sparse = new HyperLogLogPlus(14, 25);
+        long normal = new HyperLogLogPlus(14).getMemoryFootprint();
+        long empty = sparse.getMemoryFootprint();
+        assertTrue(empty < normal / 10);
+        for (int i = 0; i < 1000; i++) {
+            sparse.offer(i);
+        }
+        assertTrue(empty < sparse.getMemoryFootprint() && sparse.getMemoryFootprint() < normal);
+        for (int i = 1000; i < 100000; i++) {
+            sparse.offer(i);
+        }
+        assertEquals(normal, sparse.getMemoryFootprint());   // converted to the normal mode
+    }
+}
@@ -0,0 +1,114 @@
+package util.cardinality;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import util.load.JenkinsHash;
+
+/**
+ * Cost of hashing a String key with every hash function of util.cardinality, JenkinsHash and Guava's murmur3,
+ * through the entry point a caller would use: the Object methods of {@link Hash}, which go through a byte array,
+ * and the CharSequence methods of MurmurHash3 and SpookyHash, which do not.
+ * Keys are decimal numbers, as in the Zipf data sets, or longer words.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HashBenchmark {
+
+    private static final int NUM_KEYS = 1 << 16;   // power of two, replayed in a loop
+    private static final int SEED = 13;
+
+    @Param({"7", "32"})
+    private int keyLength;
+
+    private String[] keys;
+    private int next;
+    private final long[] result = new long[2];
+    private final HashFunction guavaMurmur3 = Hashing.murmur3_128(SEED);
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        keys = new String[NUM_KEYS];
+        char[] chars = new char[keyLength];
+        for (int i = 0; i < NUM_KEYS; i++) {
+            for (int j = 0; j < keyLength; j++) {
+                chars[j] = keyLength <= 10 ? (char) ('0' + random.nextInt(10)) : (char) ('a' + random.nextInt(26));
+            }
+            keys[i] = new String(chars);
+        }
+        next = 0;
+    }
+
+    private String nextKey() {
+        return keys[next++ & (NUM_KEYS - 1)];
+    }
+
+    @Benchmark
+    public int murmurHash() {
+        return MurmurHash.getInstance().hash(nextKey());
+    }
+
+    @Benchmark
+    public long murmurHash64() {
+        return MurmurHash.getInstance().hash64(nextKey());
+    }
+
+    @Benchmark
+    public long murmurHash3_64() {
+        return MurmurHash3.getInstance().hash64(nextKey());
+    }
+
+    @Benchmark
+    public long murmurHash3_128Chars() {
+        MurmurHash3.MurmurHash3_x64_128(nextKey(), SEED, result);
+        return result[0] ^ result[1];
+    }
+
+    @Benchmark
+    public long spookyHash32() {
+        result[0] = SEED;
+        result[1] = SEED;
+        return SpookyHash32.hash(nextKey(), result);
+    }
+
+    @Benchmark
+    public long spookyHash64() {
+        return SpookyHash64.hash(nextKey(), SEED);
+    }
+
+    @Benchmark
+    public int jenkinsHash() {
+        return JenkinsHash.getInstance().hash(nextKey());
+    }
+
+    @Benchmark
+    public long jenkinsHash64() {
+        return JenkinsHash.getInstance().hash64(nextKey());
+    }
+
+    @Benchmark
+    public long guavaMurmur3_128() {
+        return guavaMurmur3.hashString(nextKey(), StandardCharsets.UTF_8).asLong();
+    }
+}
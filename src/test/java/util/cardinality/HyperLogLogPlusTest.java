@@ -0,0 +1,78 @@
+package util.cardinality;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class HyperLogLogPlusTest {
+
+    @Test
+    public void testSortEncodedSetPutsHighestRunLengthFirst() {
+        Random random = new Random(7);
+        int[][] precisions = {{14, 25}, {10, 25}, {22, 25}, {25, 25}, {14, 30}};
+        for (int[] precision : precisions) {
+            int p = precision[0];
+            int sp = precision[1];
+            int[] encoded = new int[5000];
+            for (int i = 0; i < encoded.length; i++) {
+                encoded[i] = i > 0 && random.nextInt(5) == 0
+                        ? encoded[random.nextInt(i)]
+                        : encode(random.nextInt() >>> (32 - sp), random.nextInt(64), p, sp);
+            }
+            List<Integer> expected = new ArrayList<Integer>();
+            for (int k : encoded) {
+                expected.add(k);
+            }
+            // idx', then the inverted run length, so that the highest run length of an idx' comes first
+            Collections.sort(expected, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer left, Integer right) {
+                    int leftIndex = sparseIndex(left);
+                    int rightIndex = sparseIndex(right);
+                    if (leftIndex != rightIndex) {
+                        return leftIndex < rightIndex ? -1 : 1;
+                    }
+                    return (left & 0x7f) - (right & 0x7f);
+                }
+            });
+
+            int[] sorted = new HyperLogLogPlus(p, sp).sortEncodedSet(encoded, encoded.length - 1);
+            assertEquals(encoded.length - 1, sorted.length);
+            expected.remove(Integer.valueOf(encoded[encoded.length - 1]));
+            for (int i = 0; i < sorted.length; i++) {
+                assertEquals(expected.get(i).intValue(), sorted[i]);
+            }
+        }
+    }
+
+    @Test
+    public void testSparseModeCountsDistinctKeys() {
+        for (int sp : new int[]{25, 30}) {
+            HyperLogLogPlus sparse = new HyperLogLogPlus(14, sp);
+            for (int n = 0; n < 3; n++) {
+                for (int i = 0; i < 3000; i++) {
+                    sparse.offer("key-" + i);
+                }
+            }
+            assertEquals(3000, sparse.cardinality(), 30);
+        }
+    }
+
+    /**
+     * Encoding of the sparse index idx' of sp bits, with the run length when the bits of idx' after p are zeros.
+     */
+    private static int encode(int idx, int invertedRunLength, int p, int sp) {
+        int zeroTest = idx & ((1 << (sp - p)) - 1);
+        return zeroTest == 0 ? (((idx << 6) | invertedRunLength) << 1) | 1 : idx << 1;
+    }
+
+    private static int sparseIndex(int k) {
+        return (k & 1) == 1 ? k >>> 7 : k >>> 1;
+    }
+}
@@ -0,0 +1,47 @@
+package util.cardinality;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class MurmurHash3Test {
+    private static final int SEED = 31;
+
+    @Test
+    public void testCharSequenceMatchesBytes() {
+        Random random = new Random(42);
+        long[] result = new long[2];
+        for (int length = 0; length < 40; length++) {
+            for (int n = 0; n < 50; n++) {
+                StringBuilder key = new StringBuilder();
+                for (int i = 0; i < length; i++) {
+                    key.append((char) random.nextInt(Character.MIN_SURROGATE));  // unpaired surrogates do not encode
+                }
+                MurmurHash3.MurmurHash3_x64_128(key, SEED, result);
+                byte[] bytes = key.toString().getBytes(StandardCharsets.UTF_16LE);
+                long[] expected = MurmurHash3.MurmurHash3_x64_128(bytes, SEED);
+                assertEquals(expected[0], result[0]);
+                assertEquals(expected[1], result[1]);
+            }
+        }
+    }
+
+    @Test
+    public void testLongMatchesBytes() {
+        Random random = new Random(42);
+        long[] result = new long[2];
+        for (int n = 0; n < 1000; n++) {
+            long key = n < 500 ? n - 250 : random.nextLong();
+            MurmurHash3.MurmurHash3_x64_128(key, SEED, result);
+            byte[] bytes = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putLong(key).array();
+            long[] expected = MurmurHash3.MurmurHash3_x64_128(bytes, SEED);
+            assertEquals(expected[0], result[0]);
+            assertEquals(expected[1], result[1]);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package util.cardinality;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class MurmurHashTest {
+
+    @Test
+    public void testHashOfStringIsStable() {
+        Hash hash = MurmurHash.getInstance();
+        for (int i = 0; i < 1000; i++) {
+            String key = "key-" + i;
+            int expected = hash.hash(key);
+            assertEquals(hash.hash(key.getBytes(StandardCharsets.UTF_8), Hash.STABLE_SEED), expected);
+            for (int n = 0; n < 10; n++) {
+                assertEquals(expected, hash.hash(new String(key)));
+                assertEquals(hash.stableHash(key), hash.stableHash(new String(key)));
+            }
+            assertEquals(hash.stableHash(i), hash.stableHash((long) i));
+        }
+    }
+
+    @Test
+    public void testStableHashDependsOnSeed() {
+        Hash hash = MurmurHash.getInstance();
+        assertEquals(hash.stableHash("key", 13), hash.stableHash("key", 13));
+        assertTrue(hash.stableHash("key", 13) != hash.stableHash("key", 17));
+        assertTrue(hash.stableHash(42, 13) != hash.stableHash(42, 17));
+    }
+}
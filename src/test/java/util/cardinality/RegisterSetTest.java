@@ -0,0 +1,54 @@
+package util.cardinality;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class RegisterSetTest {
+
+    @Test
+    public void testMergeTakesTheMaxOfEveryRegister() {
+        Random random = new Random(42);
+        for (int count : new int[]{16, 1 << 10, 1000}) {
+            RegisterSet a = new RegisterSet(count);
+            RegisterSet b = new RegisterSet(count);
+            for (int i = 0; i < count; i++) {
+                a.set(i, random.nextInt(32));
+                b.set(i, random.nextInt(4) == 0 ? a.get(i) : random.nextInt(32));
+            }
+            int[] expected = new int[count];
+            for (int i = 0; i < count; i++) {
+                expected[i] = Math.max(a.get(i), b.get(i));
+            }
+            a.merge(b);
+            for (int i = 0; i < count; i++) {
+                assertEquals(expected[i], a.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testSumInversePowersMatchesRegisterScan() {
+        Random random = new Random(1);
+        for (int count : new int[]{16, 1 << 14, 1000}) {
+            RegisterSet registers = new RegisterSet(count);
+            for (int i = 0; i < count; i++) {
+                registers.set(i, random.nextBoolean() ? 0 : random.nextInt(31));
+            }
+            double sum = 0;
+            int zeros = 0;
+            for (int i = 0; i < count; i++) {
+                int val = registers.get(i);
+                sum += 1.0 / (1 << val);
+                if (val == 0) {
+                    zeros++;
+                }
+            }
+            int[] zeroRegisters = new int[1];
+            assertEquals(sum, registers.sumInversePowers(zeroRegisters), 0.0);
+            assertEquals(zeros, zeroRegisters[0]);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package util.load;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class CountMinSketchTest {
+    private static final double EPSILON = 0.001;
+    private static final int K = 20;
+
+    @Test
+    public void testEstimatesAreBounded() throws FrequencyException {
+        CountMinSketch<String> sketch = new CountMinSketch<>(EPSILON, 0.01, K);
+        assertEquals(5, sketch.getDepth());
+        assertEquals(4096, sketch.getWidth());
+
+        Map<String, Long> exact = new HashMap<>();
+        Random random = new Random(42);
+        int n = 200000;
+        for (int i = 0; i < n; i++) {
+            String key = "k" + (int) Math.floor(Math.pow(random.nextDouble(), 4) * 50000);
+            sketch.add(key);
+            Long count = exact.get(key);
+            exact.put(key, count == null ? 1 : count + 1);
+        }
+        assertEquals(n, sketch.size());
+
+        int over = 0;
+        for (Map.Entry<String, Long> e : exact.entrySet()) {
+            long estimate = sketch.estimateCount(e.getKey());
+            assertTrue(estimate >= e.getValue());
+            if (estimate > e.getValue() + EPSILON * n) {
+                over++;
+            }
+        }
+        assertTrue(over <= 0.01 * exact.size());
+        assertTrue(sketch.estimateCount("never seen") <= EPSILON * n);
+    }
+
+    @Test
+    public void testTopKHoldsTheHeaviestItems() throws FrequencyException {
+        CountMinSketch<Integer> sketch = new CountMinSketch<>(EPSILON, 0.01, K);
+        Random random = new Random(7);
+        for (int i = 0; i < 100000; i++) {
+            sketch.add((int) Math.floor(Math.pow(random.nextDouble(), 6) * 10000));
+        }
+        Set<Integer> expected = new HashSet<>();
+        for (int i = 0; i < K / 2; i++) {   // the first ranks are far apart, so they must be in the top-k
+            expected.add(i);
+        }
+        assertTrue(sketch.keySet().containsAll(expected));
+        assertEquals(K, sketch.keySet().size());
+
+        for (CountEntry<Integer> entry : sketch.getFrequentItems(0.01)) {
+            assertEquals(sketch.estimateCount(entry.item), entry.frequency);
+            assertTrue(entry.frequency >= 0.01 * sketch.size());
+        }
+
+        // contains means in the top-k, not a non-zero estimate
+        assertTrue(sketch.contains(0));
+        assertTrue(sketch.estimateCount(9999) > 0);
+        assertFalse(sketch.contains(9999));
+    }
+}
@@ -0,0 +1,48 @@
+package util.load;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class DecayingCountingTest {
+    private static final long HALF_LIFE = 10000;
+    private static final double SUPPORT = 0.05;
+
+    @Test
+    public void testCooledKeyLeavesTheHead() throws FrequencyException {
+        DecayingCounting<String> decaying = new DecayingCounting<>(HALF_LIFE, SUPPORT * 0.1);
+        LossyCounting<String> lossy = new LossyCounting<>(SUPPORT * 0.1);
+        Random random = new Random(42);
+
+        // "hot" is half of the stream for 10 half-lives, then never occurs again
+        int n = 0;
+        for (; n < 10 * HALF_LIFE; n++) {
+            String key = random.nextBoolean() ? "hot" : "k" + random.nextInt(100000);
+            decaying.add(key);
+            lossy.add(key);
+        }
+        assertTrue(decaying.estimateCount("hot") / (double) decaying.size() > SUPPORT);
+
+        // frequency 1/2 halves every half-life, so it is below the support after log2(0.5 / 0.05) < 4 half-lives
+        int cooled = -1;
+        for (; n < 30 * HALF_LIFE; n++) {
+            String key = "k" + random.nextInt(100000);
+            decaying.add(key);
+            lossy.add(key);
+            if (cooled < 0 && decaying.estimateCount("hot") / (double) decaying.size() <= SUPPORT) {
+                cooled = n;
+            }
+        }
+        assertTrue(cooled >= 0 && cooled < 10 * HALF_LIFE + 4 * HALF_LIFE);
+        assertFalse(decaying.contains("hot"));
+        assertTrue(lossy.estimateCount("hot") / (double) lossy.size() > SUPPORT);   // no decay, still in the head
+
+        assertEquals(30 * HALF_LIFE, decaying.getElementsCounted());
+        assertTrue(decaying.size() < 2 * HALF_LIFE);
+        assertTrue(decaying.keySet().size() <= HALF_LIFE + 1 / (SUPPORT * 0.1));
+    }
+}
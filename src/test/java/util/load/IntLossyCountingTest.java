@@ -0,0 +1,32 @@
+package util.load;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class IntLossyCountingTest {
+    private static final double ERROR = 0.001;
+
+    @Test
+    public void testMatchesLossyCounting() throws FrequencyException {
+        LossyCounting<Integer> expected = new LossyCounting<>(ERROR);
+        IntLossyCounting actual = new IntLossyCounting(ERROR);
+        Random random = new Random(42);
+        for (int i = 0; i < 200000; i++) {
+            // skewed keys, so that compression removes the rare ones and keeps the frequent ones
+            int item = (int) Math.floor(Math.pow(random.nextDouble(), 4) * 100000) * 7919;
+
+            assertEquals(expected.add(item), actual.add(item));
+            assertEquals(expected.estimateCount(item), actual.estimateCount(item));
+            assertEquals(expected.size(), actual.size());
+            if (i % 1000 == 999) {
+                assertEquals(expected.keySet().size(), actual.entries());
+                for (Integer key : expected.keySet()) {
+                    assertEquals(expected.estimateCount(key), actual.estimateCount(key));
+                }
+            }
+        }
+    }
+}
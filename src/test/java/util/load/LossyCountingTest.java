@@ -0,0 +1,31 @@
+package util.load;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class LossyCountingTest {
+
+    @Test
+    public void testFrequentItemsAreNotChangedByLaterCounts() {
+        LossyCounting<Integer> counting = new LossyCounting<Integer>(0.01);
+        for (int i = 0; i < 10000; i++) {
+            counting.add(i % 2 == 0 ? 0 : i, 1);
+        }
+        List<CountEntry<Integer>> frequent = counting.getFrequentItems(0.2);
+        assertEquals(1, frequent.size());
+        CountEntry<Integer> entry = frequent.get(0);
+        assertEquals(Integer.valueOf(0), entry.item);
+        assertEquals(5000, entry.frequency);
+
+        for (int i = 10000; i < 600000; i++) {   // item 0 is compressed away, other items take its slot
+            counting.add(i + 1, 1);
+        }
+        assertTrue(!counting.contains(0));
+        assertEquals(Integer.valueOf(0), entry.item);
+        assertEquals(5000, entry.frequency);
+    }
+}
@@ -0,0 +1,50 @@
+package util.load;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class SpaceSavingTest {
+    private static final int CAPACITY = 100;
+
+    @Test
+    public void testCountersStaySorted() {
+        SpaceSaving<String> summary = new SpaceSaving<>(CAPACITY);
+        Random random = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            int rank = (int) Math.floor(Math.pow(random.nextDouble(), 3) * 1000);
+            String key = (i < 10000 ? "a" : "b") + rank;
+            String dropped = summary.offerReturnDropped(key, 1);
+            assertTrue(dropped == null || !summary.contains(dropped));
+
+            List<SpaceSaving.Counter<String>> counters = summary.topK(CAPACITY);
+            assertEquals(summary.keySet().size(), counters.size());
+            long sum = 0;
+            long previous = Long.MAX_VALUE;
+            for (SpaceSaving.Counter<String> counter : counters) {
+                assertTrue(counter.getCount() <= previous);
+                assertEquals(counter.getCount(), summary.estimateCount(counter.getItem()));
+                previous = counter.getCount();
+                sum += counter.getCount();
+            }
+            assertEquals(i + 1, sum);   // every offer is counted by exactly one counter
+            assertEquals(i + 1, summary.size());
+        }
+    }
+
+    @Test
+    public void testFrequentItems() {
+        SpaceSaving<Integer> summary = new SpaceSaving<>(10);
+        for (int i = 0; i < 1000; i++) {
+            summary.offer(i % 4 == 0 ? -1 : i);   // -1 has frequency 1/4, the others 1/1000
+        }
+        List<CountEntry<Integer>> frequent = summary.getFrequentItems(0.2);
+        assertEquals(1, frequent.size());
+        assertEquals(Integer.valueOf(-1), frequent.get(0).getItem());
+        assertTrue(summary.getGuaranteed());
+    }
+}
@@ -0,0 +1,65 @@
+package util.load;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class StickySamplingTest {
+    private static final double SUPPORT = 0.05;
+    private static final double ERROR = 0.005;
+    private static final double FAILURE = 0.01;
+
+    @Test
+    public void testFrequentItemsAreReported() throws FrequencyException {
+        StickySampling<Integer> sampling = new StickySampling<>(SUPPORT, ERROR, FAILURE, 7);
+        Map<Integer, Long> exact = new HashMap<>();
+        Random random = new Random(42);
+        int n = 500000;
+        for (int i = 0; i < n; i++) {
+            int key = (int) Math.floor(Math.pow(random.nextDouble(), 4) * 100000);
+            sampling.add(key);
+            Long count = exact.get(key);
+            exact.put(key, count == null ? 1 : count + 1);
+        }
+        assertEquals(n, sampling.size());
+
+        Set<Integer> reported = new HashSet<>();
+        for (CountEntry<Integer> entry : sampling.getFrequentItems(SUPPORT)) {
+            reported.add(entry.item);
+            long count = exact.get(entry.item);
+            // counts are never overestimated, and not underestimated by more than error * n
+            assertTrue(entry.frequency <= count);
+            assertTrue(entry.frequency >= count - ERROR * n);
+            assertTrue(count >= (SUPPORT - ERROR) * n);
+        }
+        for (Map.Entry<Integer, Long> e : exact.entrySet()) {
+            if (e.getValue() >= SUPPORT * n) {
+                assertTrue("missing " + e.getKey(), reported.contains(e.getKey()));
+            }
+        }
+        assertTrue(sampling.keySet().size() < exact.size() / 10);
+    }
+
+    @Test
+    public void testSeedIsReproducible() throws FrequencyException {
+        StickySampling<Integer> a = new StickySampling<>(SUPPORT, ERROR, FAILURE, 3);
+        StickySampling<Integer> b = new StickySampling<>(SUPPORT, ERROR, FAILURE, 3);
+        Random random = new Random(1);
+        for (int i = 0; i < 100000; i++) {
+            int key = random.nextInt(5000);
+            a.add(key);
+            b.add(key);
+        }
+        assertEquals(a.keySet(), b.keySet());
+        for (Integer key : a.keySet()) {
+            assertEquals(a.estimateCount(key), b.estimateCount(key));
+        }
+    }
+}